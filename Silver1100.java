@@ -1,7 +1,9 @@
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
 import java.util.ArrayList;
+import java.util.Arrays;
 import java.util.List;
-import java.util.Scanner;
-import java.util.Hashtable;
 
 class Cell {
 
@@ -37,57 +39,44 @@ class Action {
     static final String SEED = "SEED";
     static final String GROW = "GROW";
     static final String COMPLETE = "COMPLETE";
-    String type;
-    Integer targetCellIdx;
-    Integer sourceCellIdx;
-
-    public Action(String type, Integer sourceCellIdx, Integer targetCellIdx) {
-        this.type = type;
-        this.targetCellIdx = targetCellIdx;
-        this.sourceCellIdx = sourceCellIdx;
-    }
-
-    public Action(String type, Integer targetCellIdx) {
-        this(type, null, targetCellIdx);
-    }
-
-    public Action(String type) {
-        this(type, null, null);
+    static final byte[][] NAMES = {WAIT.getBytes(), SEED.getBytes(), GROW.getBytes(), COMPLETE.getBytes()};
+
+    //writes the move as a referee command into buf at pos, returns the position after it
+    static int write(int move, byte[] buf, int pos) {
+        byte[] name = NAMES[Move.type(move)];
+        System.arraycopy(name, 0, buf, pos, name.length);
+        pos += name.length;
+        if(Move.type(move) == Move.SEED) pos = writeCell(Move.source(move), buf, pos);
+        if(Move.type(move) != Move.WAIT) pos = writeCell(Move.target(move), buf, pos);
+        return pos;
     }
 
-    static Action parse(String action) {
-        String[] parts = action.split(" ");
-        switch (parts[0]) {
-            case WAIT:
-                return new Action(WAIT);
-            case SEED:
-                return new Action(SEED, Integer.valueOf(parts[1]), Integer.valueOf(parts[2]));
-            case GROW:
-            case COMPLETE:
-            default:
-                return new Action(parts[0], Integer.valueOf(parts[1]));
-        }
+    private static int writeCell(int cell, byte[] buf, int pos) {
+        buf[pos++] = ' ';
+        if(cell >= 10) buf[pos++] = (byte) ('0' + cell / 10);
+        buf[pos++] = (byte) ('0' + cell % 10);
+        return pos;
     }
 
-    @Override
-    public String toString() {
-        if (WAIT.equalsIgnoreCase(type)) {
-            return Action.WAIT;
-        }
-        if (SEED.equalsIgnoreCase(type)) {
-            return String.format("%s %d %d", SEED, sourceCellIdx, targetCellIdx);
-        }
-        return String.format("%s %d", type, targetCellIdx);
+    static String toString(int move) {
+        byte[] buf = new byte[16];
+        return new String(buf, 0, write(move, buf, 0));
     }
 }
 
 class RankedAction {
-    Action action;
+    int action;
     double fitness;
 
-    RankedAction(Action a, double f) {
+    RankedAction(int a, double f) {
+        this.action = a;
+        this.fitness = f;
+    }
+
+    RankedAction set(int a, double f) {
         this.action = a;
         this.fitness = f;
+        return this;
     }
 }
 
@@ -97,22 +86,1723 @@ class ActionCosts {
     int complete = 4;
     int[] amtTrees = {0, 0, 0, 0}; // { # lvl 0 trees, # lvl 1 trees, # lvl 2 trees, # lvl 3 trees}
 
-    ActionCosts(List<Tree> trees) {
-        calcCosts(trees);
+    ActionCosts(State state) {
+        calcCosts(state);
+    }
+
+    public void calcCosts(State state) {
+        for(int i = 0; i < 4; i++) {
+            amtTrees[i] = state.count(State.ME, i);
+        }
+
+        this.plantSeed = amtTrees[0];
+        for(int i = 0; i < 3; i++) {
+            this.growCosts[i] = MoveGen.growCost(i, amtTrees[i + 1]);
+        }
+    }
+}
+
+class Hex {
+    static final int CELLS = 37;
+
+    static int[] richness = new int[CELLS];
+    static long usable; // cells with richness > 0
+    static long[][][] lineBit = new long[CELLS][6][3]; // bit of the cell 1..3 steps away in each direction, 0 off board
+    static long[][][] shadow = new long[6][CELLS][4]; // [sun dir][cell][tree size] cells shaded by that tree
+    static long[][] within = new long[CELLS][4]; // cells at distance 1..r from a cell (seed range)
+
+    //derives every static table from the initial cell input, called once before the first turn
+    static void init(List<Cell> board) {
+        usable = 0;
+        for(int c = 0; c < CELLS; c++) {
+            Cell cell = board.get(c);
+            richness[c] = cell.richness;
+            if(cell.richness > 0) usable |= 1L << c;
+
+            for(int dir = 0; dir < 6; dir++) {
+                int next = cell.neighbours[dir];
+                long reach = 0;
+                for(int j = 0; j < 3; j++) {
+                    if(next != -1) {
+                        lineBit[c][dir][j] = 1L << next;
+                        reach |= 1L << next;
+                        next = board.get(next).neighbours[dir];
+                    } else {
+                        lineBit[c][dir][j] = 0;
+                    }
+                    shadow[dir][c][j + 1] = reach;
+                }
+                shadow[dir][c][0] = 0;
+            }
+        }
+
+        for(int c = 0; c < CELLS; c++) {
+            long frontier = 1L << c;
+            long seen = frontier;
+            for(int r = 1; r <= 3; r++) {
+                long next = 0;
+                for(long f = frontier; f != 0; f &= f - 1) {
+                    int from = Long.numberOfTrailingZeros(f);
+                    for(int dir = 0; dir < 6; dir++) {
+                        next |= lineBit[from][dir][0];
+                    }
+                }
+                frontier = next & ~seen;
+                seen |= next;
+                within[c][r] = seen & ~(1L << c);
+            }
+        }
+        Symmetry.init();
+    }
+
+    //fills out[k] with the cells shaded by trees of size >= k (k = 1..3) when the sun points in dir
+    static void shadows(State state, int dir, long[] out) {
+        long[][] table = shadow[dir];
+        long acc = 0;
+        for(int k = 3; k >= 1; k--) {
+            for(long t = state.size[k]; t != 0; t &= t - 1) {
+                acc |= table[Long.numberOfTrailingZeros(t)][k];
+            }
+            out[k] = acc;
+        }
+        out[0] = acc;
+    }
+
+    //directions in which a tree within reach is tall enough to cover the cell now
+    static int shade(State state, int cell) {
+        long atLeast3 = state.size[3];
+        long atLeast2 = atLeast3 | state.size[2];
+        long atLeast1 = atLeast2 | state.size[1];
+        int shade = 0;
+        long[][] lines = lineBit[cell];
+        for(int i = 0; i < 6; i++) {
+            long[] line = lines[i];
+            if(((atLeast1 & line[0]) | (atLeast2 & line[1]) | (atLeast3 & line[2])) != 0) shade++;
+        }
+        return shade;
+    }
+
+    //trees in a spooky shadow (shaded by a tree at least as big) collect no sun
+    static long spooky(State state, int dir, long[] shade) {
+        shadows(state, dir, shade);
+        return (state.size[1] & shade[1]) | (state.size[2] & shade[2]) | (state.size[3] & shade[3]);
+    }
+}
+
+class Symmetry {
+    //the board's 6 rotations and their mirror images as cell permutations, for book keys and book moves
+    static final int COUNT = 12;
+    static int[][] cell = new int[COUNT][Hex.CELLS];
+    static int[] inverse = new int[COUNT];
+
+    //walks the board from the center, following each step's direction rotated (and mirrored) by the transform
+    static void init() {
+        int[] queue = new int[Hex.CELLS];
+        for(int t = 0; t < COUNT; t++) {
+            cell[t][0] = 0;
+            long seen = 1;
+            int head = 0, tail = 1;
+            while(head < tail) {
+                int c = queue[head++];
+                for(int d = 0; d < 6; d++) {
+                    long next = Hex.lineBit[c][d][0];
+                    if(next == 0 || (seen & next) != 0) continue;
+                    seen |= next;
+                    int n = Long.numberOfTrailingZeros(next);
+                    cell[t][n] = Long.numberOfTrailingZeros(Hex.lineBit[cell[t][c]][((t < 6 ? d : 6 - d) + t) % 6][0]);
+                    queue[tail++] = n;
+                }
+            }
+        }
+        for(int t = 0; t < COUNT; t++) {
+            for(int u = 0; u < COUNT; u++) {
+                if(cell[u][cell[t][1]] == 1 && cell[u][cell[t][2]] == 2) inverse[t] = u;
+            }
+        }
+    }
+
+    static long map(long mask, int t) {
+        long mapped = 0;
+        for(; mask != 0; mask &= mask - 1) {
+            mapped |= 1L << cell[t][Long.numberOfTrailingZeros(mask)];
+        }
+        return mapped;
+    }
+
+    static int move(int move, int t) {
+        switch (Move.type(move)) {
+            case Move.SEED:
+                return Move.seed(cell[t][Move.source(move)], cell[t][Move.target(move)]);
+            case Move.GROW:
+                return Move.grow(cell[t][Move.target(move)]);
+            case Move.COMPLETE:
+                return Move.complete(cell[t][Move.target(move)]);
+            default:
+                return move;
+        }
+    }
+
+    //the transform giving the smallest masks, the lowest such index if several do
+    static int canonical(State state) {
+        int best = 0;
+        for(int t = 1; t < COUNT; t++) {
+            if(compare(state, t, best) < 0) best = t;
+        }
+        return best;
+    }
+
+    private static int compare(State state, int a, int b) {
+        long[] masks = {state.usable, state.owner[State.ME], state.owner[State.OPP],
+                state.size[0], state.size[1], state.size[2], state.size[3], state.dormant};
+        for(long mask : masks) {
+            int c = Long.compareUnsigned(map(mask, a), map(mask, b));
+            if(c != 0) return c;
+        }
+        return 0;
+    }
+}
+
+class Zobrist {
+    //random keys for every piece of the state, a state's hash is the xor of the keys of what it holds
+    static final int SUN_KEYS = 256; // sun and score values above this share the last key
+    static final long[][][] tree = new long[Hex.CELLS][4][2]; // [cell][size][owner]
+    static final long[] dormant = new long[Hex.CELLS];
+    static final long[][] sun = new long[2][SUN_KEYS];
+    static final long[][] score = new long[2][SUN_KEYS];
+    static final long[] waiting = new long[2];
+    static final long[] day = new long[Sim.LAST_DAY + 2];
+    static final long[] nutrients = new long[21];
+
+    static {
+        java.util.SplittableRandom rnd = new java.util.SplittableRandom(20210506);
+        for(int c = 0; c < Hex.CELLS; c++) {
+            for(int s = 0; s < 4; s++) {
+                tree[c][s][0] = rnd.nextLong();
+                tree[c][s][1] = rnd.nextLong();
+            }
+            dormant[c] = rnd.nextLong();
+        }
+        for(int p = 0; p < 2; p++) {
+            for(int v = 0; v < SUN_KEYS; v++) {
+                sun[p][v] = rnd.nextLong();
+                score[p][v] = rnd.nextLong();
+            }
+            waiting[p] = rnd.nextLong();
+        }
+        for(int d = 0; d < day.length; d++) day[d] = rnd.nextLong();
+        for(int n = 0; n < nutrients.length; n++) nutrients[n] = rnd.nextLong();
+    }
+
+    static long sun(int player, int value) {
+        return sun[player][Math.min(value, SUN_KEYS - 1)];
+    }
+
+    static long score(int player, int value) {
+        return score[player][Math.min(value, SUN_KEYS - 1)];
+    }
+}
+
+class TransTable {
+    //open-addressed cache of evaluations by Zobrist key; a probe looks at BUCKET slots and,
+    //when all are taken by other keys, the entry from the oldest search (then the first slot) is replaced
+    static final int BUCKET = 4;
+
+    long[] keys;
+    double[] values;
+    int[] generation;
+    int mask;
+    int current = 1; // search generation, bumped once per turn
+    int hits, probes; // counted in Player.STATS builds only
+
+    TransTable(int log2Size) {
+        keys = new long[1 << log2Size];
+        values = new double[1 << log2Size];
+        generation = new int[1 << log2Size];
+        mask = (1 << log2Size) - 1;
+    }
+
+    void newSearch() {
+        current++;
+    }
+
+    //slot holding key, or -1
+    int find(long key) {
+        if(Player.STATS) probes++;
+        int i = (int) (key ^ (key >>> 32)) & mask;
+        for(int k = 0; k < BUCKET; k++, i = (i + 1) & mask) {
+            if(generation[i] != 0 && keys[i] == key) {
+                if(Player.STATS) hits++;
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    //true if the slot was stored during the current search
+    boolean seenThisSearch(int slot) {
+        return generation[slot] == current;
+    }
+
+    void store(long key, double value) {
+        int i = (int) (key ^ (key >>> 32)) & mask;
+        int victim = i;
+        for(int k = 0; k < BUCKET; k++, i = (i + 1) & mask) {
+            if(generation[i] == 0 || keys[i] == key) {
+                victim = i;
+                break;
+            }
+            if(generation[i] < generation[victim]) victim = i;
+        }
+        keys[victim] = key;
+        values[victim] = value;
+        generation[victim] = current;
+    }
+}
+
+class State {
+    static final int ME = 0;
+    static final int OPP = 1;
+
+    //bit i of a mask = cell i (the board has 37 cells so everything fits in a long)
+    long[] size = {0, 0, 0, 0}; // cells holding a tree of each size
+    long[] owner = {0, 0}; // cells owned by me / by the opponent
+    long dormant;
+    long usable; // cells with richness > 0, the only thing that differs between official boards
+    int[] sun = {0, 0};
+    int[] score = {0, 0};
+    boolean[] waiting = {false, false};
+    int day;
+    int nutrients;
+    long hash; // Zobrist key, kept up to date by the mutators below
+    double psqEarly, psqLate; // Eval.PSQ sums over the trees, ME minus OPP, kept up to date with the hash
+
+    void copyFrom(State o) {
+        size[0] = o.size[0];
+        size[1] = o.size[1];
+        size[2] = o.size[2];
+        size[3] = o.size[3];
+        owner[0] = o.owner[0];
+        owner[1] = o.owner[1];
+        dormant = o.dormant;
+        usable = o.usable;
+        sun[0] = o.sun[0];
+        sun[1] = o.sun[1];
+        score[0] = o.score[0];
+        score[1] = o.score[1];
+        waiting[0] = o.waiting[0];
+        waiting[1] = o.waiting[1];
+        day = o.day;
+        nutrients = o.nutrients;
+        hash = o.hash;
+        psqEarly = o.psqEarly;
+        psqLate = o.psqLate;
+    }
+
+    //copy of o seen from the opponent's side, so code written for ME can play either player
+    void copyFlipped(State o) {
+        copyFrom(o);
+        owner[ME] = o.owner[OPP];
+        owner[OPP] = o.owner[ME];
+        sun[ME] = o.sun[OPP];
+        sun[OPP] = o.sun[ME];
+        score[ME] = o.score[OPP];
+        score[OPP] = o.score[ME];
+        waiting[ME] = o.waiting[OPP];
+        waiting[OPP] = o.waiting[ME];
+        rehash();
+    }
+
+    //full hash, for states whose fields were set directly
+    void rehash() {
+        long h = Zobrist.day[Math.min(day, Zobrist.day.length - 1)] ^ Zobrist.nutrients[nutrients];
+        for(int p = 0; p < 2; p++) {
+            h ^= Zobrist.sun(p, sun[p]) ^ Zobrist.score(p, score[p]);
+            if(waiting[p]) h ^= Zobrist.waiting[p];
+            for(int s = 0; s < 4; s++) {
+                for(long t = size[s] & owner[p]; t != 0; t &= t - 1) {
+                    h ^= Zobrist.tree[Long.numberOfTrailingZeros(t)][s][p];
+                }
+            }
+        }
+        for(long t = dormant; t != 0; t &= t - 1) {
+            h ^= Zobrist.dormant[Long.numberOfTrailingZeros(t)];
+        }
+        hash = h;
+
+        psqEarly = psqLate = 0;
+        for(long t = occupied(); t != 0; t &= t - 1) {
+            int cell = Long.numberOfTrailingZeros(t);
+            psq(cell, sizeAt(cell), (owner[ME] & 1L << cell) != 0 ? 1 : -1);
+        }
+    }
+
+    //adds the tree's piece-square weights, sign is +1 for my tree and -1 for the opponent's, negated to remove
+    private void psq(int cell, int treeSize, int sign) {
+        psqEarly += sign * Eval.PSQ[cell << 2 | treeSize];
+        psqLate += sign * Eval.PSQ[Hex.CELLS * 4 + (cell << 2 | treeSize)];
+    }
+
+    void clearTrees() {
+        size[0] = size[1] = size[2] = size[3] = 0;
+        owner[0] = owner[1] = 0;
+        dormant = 0;
+        rehash();
+    }
+
+    void addTree(int cell, int treeSize, int player, boolean isDormant) {
+        long bit = 1L << cell;
+        size[treeSize] |= bit;
+        owner[player] |= bit;
+        hash ^= Zobrist.tree[cell][treeSize][player];
+        psq(cell, treeSize, player == ME ? 1 : -1);
+        if(isDormant) setDormant(cell);
+    }
+
+    void growTree(int cell) {
+        long bit = 1L << cell;
+        int treeSize = sizeAt(cell);
+        int player = (owner[ME] & bit) != 0 ? ME : OPP;
+        size[treeSize] &= ~bit;
+        size[treeSize + 1] |= bit;
+        hash ^= Zobrist.tree[cell][treeSize][player] ^ Zobrist.tree[cell][treeSize + 1][player];
+        psq(cell, treeSize, player == ME ? -1 : 1);
+        psq(cell, treeSize + 1, player == ME ? 1 : -1);
+    }
+
+    void removeTree(int cell) {
+        long bit = 1L << cell;
+        int mine = (owner[ME] & bit) != 0 ? 1 : -1;
+        hash ^= Zobrist.tree[cell][sizeAt(cell)][mine == 1 ? ME : OPP];
+        psq(cell, sizeAt(cell), -mine);
+        if((dormant & bit) != 0) hash ^= Zobrist.dormant[cell];
+        long keep = ~bit;
+        size[0] &= keep;
+        size[1] &= keep;
+        size[2] &= keep;
+        size[3] &= keep;
+        owner[0] &= keep;
+        owner[1] &= keep;
+        dormant &= keep;
+    }
+
+    void setDormant(int cell) {
+        long bit = 1L << cell;
+        if((dormant & bit) != 0) return;
+        dormant |= bit;
+        hash ^= Zobrist.dormant[cell];
+    }
+
+    void clearDormant() {
+        for(long t = dormant; t != 0; t &= t - 1) {
+            hash ^= Zobrist.dormant[Long.numberOfTrailingZeros(t)];
+        }
+        dormant = 0;
+    }
+
+    void addSun(int player, int delta) {
+        hash ^= Zobrist.sun(player, sun[player]) ^ Zobrist.sun(player, sun[player] + delta);
+        sun[player] += delta;
+    }
+
+    void addScore(int player, int delta) {
+        hash ^= Zobrist.score(player, score[player]) ^ Zobrist.score(player, score[player] + delta);
+        score[player] += delta;
+    }
+
+    void setWaiting(int player, boolean isWaiting) {
+        if(waiting[player] != isWaiting) hash ^= Zobrist.waiting[player];
+        waiting[player] = isWaiting;
+    }
+
+    void setNutrients(int value) {
+        hash ^= Zobrist.nutrients[nutrients] ^ Zobrist.nutrients[value];
+        nutrients = value;
+    }
+
+    void nextDay() {
+        hash ^= Zobrist.day[Math.min(day, Zobrist.day.length - 1)] ^ Zobrist.day[Math.min(day + 1, Zobrist.day.length - 1)];
+        day++;
+    }
+
+    long occupied() {
+        return owner[0] | owner[1];
+    }
+
+    //size of the tree on cell, -1 if empty
+    int sizeAt(int cell) {
+        long bit = 1L << cell;
+        if((size[0] & bit) != 0) return 0;
+        if((size[1] & bit) != 0) return 1;
+        if((size[2] & bit) != 0) return 2;
+        if((size[3] & bit) != 0) return 3;
+        return -1;
+    }
+
+    int count(int player, int treeSize) {
+        return Long.bitCount(size[treeSize] & owner[player]);
+    }
+
+    //reconciles the state with the turn input in place, only cells whose tree changed are touched
+    void load(Game game) {
+        if(usable != Hex.usable) {
+            usable = Hex.usable;
+            clearTrees();
+        }
+        hash ^= Zobrist.day[Math.min(day, Zobrist.day.length - 1)] ^ Zobrist.day[Math.min(game.day, Zobrist.day.length - 1)];
+        day = game.day;
+        setNutrients(game.nutrients);
+        addSun(ME, game.mySun - sun[ME]);
+        addSun(OPP, game.opponentSun - sun[OPP]);
+        addScore(ME, game.myScore - score[ME]);
+        addScore(OPP, game.opponentScore - score[OPP]);
+        setWaiting(ME, false);
+        setWaiting(OPP, game.opponentIsWaiting);
+
+        long s0 = 0, s1 = 0, s2 = 0, s3 = 0, mine = 0, sleeping = 0;
+        for(int i = 0; i < game.trees.size(); i++) {
+            Tree tree = game.trees.get(i);
+            long bit = 1L << tree.cellIndex;
+            if(tree.size == 0) s0 |= bit;
+            else if(tree.size == 1) s1 |= bit;
+            else if(tree.size == 2) s2 |= bit;
+            else s3 |= bit;
+            if(tree.isMine) mine |= bit;
+            if(tree.isDormant) sleeping |= bit;
+        }
+        long all = s0 | s1 | s2 | s3;
+        long changed = (size[0] ^ s0) | (size[1] ^ s1) | (size[2] ^ s2) | (size[3] ^ s3)
+                | (owner[ME] ^ mine) | (owner[OPP] ^ (all & ~mine)) | (dormant ^ sleeping);
+        for(; changed != 0; changed &= changed - 1) {
+            int cell = Long.numberOfTrailingZeros(changed);
+            long bit = 1L << cell;
+            if((occupied() & bit) != 0) removeTree(cell);
+            if((all & bit) == 0) continue;
+            int treeSize = (s0 & bit) != 0 ? 0 : (s1 & bit) != 0 ? 1 : (s2 & bit) != 0 ? 2 : 3;
+            addTree(cell, treeSize, (mine & bit) != 0 ? ME : OPP, (sleeping & bit) != 0);
+        }
     }
 
-    public void calcCosts(List<Tree> trees) {
+    //checks the masks describe exactly the same trees as the list
+    boolean matches(List<Tree> trees) {
+        long seen = 0;
         for(int i = 0; i < trees.size(); i++) {
-            if(trees.get(i).isMine) {
-                amtTrees[trees.get(i).size]++;
+            Tree tree = trees.get(i);
+            long bit = 1L << tree.cellIndex;
+            if(sizeAt(tree.cellIndex) != tree.size) return false;
+            if(((owner[ME] & bit) != 0) != tree.isMine) return false;
+            if(((owner[OPP] & bit) != 0) == tree.isMine) return false;
+            if(((dormant & bit) != 0) != tree.isDormant) return false;
+            seen |= bit;
+        }
+        return seen == occupied() && Long.bitCount(seen) == trees.size();
+    }
+}
+
+class Move {
+    //actions packed in an int: type in bits 0-1, source cell in bits 2-7, target cell in bits 8-13
+    static final int WAIT = 0;
+    static final int SEED = 1;
+    static final int GROW = 2;
+    static final int COMPLETE = 3;
+
+    static int seed(int source, int target) {
+        return SEED | source << 2 | target << 8;
+    }
+
+    static int grow(int cell) {
+        return GROW | cell << 8;
+    }
+
+    static int complete(int cell) {
+        return COMPLETE | cell << 8;
+    }
+
+    static int type(int move) {
+        return move & 3;
+    }
+
+    static int source(int move) {
+        return (move >> 2) & 63;
+    }
+
+    static int target(int move) {
+        return (move >> 8) & 63;
+    }
+}
+
+class Sim {
+    static final int LAST_DAY = 23;
+    static final int[] RICHNESS_BONUS = {0, 0, 2, 4};
+
+    long[] shade = new long[4]; // scratch for the shadow pass, one Sim per thread
+
+    //sun cost of a move for a player, the same formulas as ActionCosts
+    static int cost(State state, int player, int move) {
+        switch (Move.type(move)) {
+            case Move.SEED:
+                return state.count(player, 0);
+            case Move.GROW:
+                int size = state.sizeAt(Move.target(move));
+                return MoveGen.growCost(size, state.count(player, size + 1));
+            case Move.COMPLETE:
+                return 4;
+            default:
+                return 0;
+        }
+    }
+
+    //one player acts while the other is already waiting
+    void apply(State state, int player, int move) {
+        if(player == State.ME) turn(state, move, Move.WAIT);
+        else turn(state, Move.WAIT, move);
+    }
+
+    //both players act at the same time; ends the day once both are waiting
+    void turn(State state, int myMove, int oppMove) {
+        if(state.waiting[State.ME]) myMove = Move.WAIT;
+        if(state.waiting[State.OPP]) oppMove = Move.WAIT;
+
+        int myCost = cost(state, State.ME, myMove);
+        int oppCost = cost(state, State.OPP, oppMove);
+
+        //two seeds on the same cell: neither is planted, sun is refunded, sources still go dormant
+        if(Move.type(myMove) == Move.SEED && Move.type(oppMove) == Move.SEED
+                && Move.target(myMove) == Move.target(oppMove)) {
+            state.setDormant(Move.source(myMove));
+            state.setDormant(Move.source(oppMove));
+            return;
+        }
+
+        int completed = act(state, State.ME, myMove, myCost) + act(state, State.OPP, oppMove, oppCost);
+        if(completed > 0) state.setNutrients(Math.max(0, state.nutrients - completed));
+
+        if(state.waiting[State.ME] && state.waiting[State.OPP]) {
+            endDay(state);
+        }
+    }
+
+    //returns 1 if a tree was completed so nutrients can drop once per tree after the turn
+    private int act(State state, int player, int move, int cost) {
+        int target = Move.target(move);
+        switch (Move.type(move)) {
+            case Move.WAIT:
+                state.setWaiting(player, true);
+                return 0;
+            case Move.SEED:
+                state.addSun(player, -cost);
+                state.addTree(target, 0, player, true);
+                state.setDormant(Move.source(move));
+                return 0;
+            case Move.GROW:
+                state.addSun(player, -cost);
+                state.growTree(target);
+                state.setDormant(target);
+                return 0;
+            default:
+                state.addSun(player, -cost);
+                state.addScore(player, state.nutrients + RICHNESS_BONUS[Hex.richness[target]]);
+                state.removeTree(target);
+                return 1;
+        }
+    }
+
+    //both players waited: next day starts, dormancy clears and the trees gather sun
+    void endDay(State state) {
+        state.nextDay();
+        state.setWaiting(State.ME, false);
+        state.setWaiting(State.OPP, false);
+        state.clearDormant();
+        if(state.day > LAST_DAY) return;
+
+        gatherSun(state);
+    }
+
+    void gatherSun(State state) {
+        long lit = ~Hex.spooky(state, state.day % 6, shade);
+        for(int p = 0; p < 2; p++) {
+            long mine = state.owner[p] & lit;
+            state.addSun(p, Long.bitCount(state.size[1] & mine)
+                    + 2 * Long.bitCount(state.size[2] & mine)
+                    + 3 * Long.bitCount(state.size[3] & mine));
+        }
+    }
+
+    //sun a player collects at the start of the current day
+    int income(State state, int player) {
+        long lit = state.owner[player] & ~Hex.spooky(state, state.day % 6, shade);
+        return Long.bitCount(state.size[1] & lit) + 2 * Long.bitCount(state.size[2] & lit)
+                + 3 * Long.bitCount(state.size[3] & lit);
+    }
+
+    static boolean gameOver(State state) {
+        return state.day > LAST_DAY;
+    }
+
+    static int finalScore(State state, int player) {
+        return state.score[player] + state.sun[player] / 3;
+    }
+}
+
+class MoveGen {
+    static final int MAX_MOVES = 1400; // 37 sources x 37 targets is a safe upper bound
+    static final int[] GROW_BASE = {1, 3, 7};
+
+    //cost of growing a tree of size, given how many trees of the next size the player already has
+    static int growCost(int size, int amtNextSize) {
+        return GROW_BASE[size] + amtNextSize;
+    }
+
+    //writes the legal moves of a player into buf, WAIT first, and returns how many there are
+    static int generate(State state, int player, int[] buf) {
+        int n = 0;
+        buf[n++] = Move.WAIT;
+        if(state.waiting[player]) return n;
+
+        long active = state.owner[player] & ~state.dormant;
+        int sun = state.sun[player];
+
+        if(sun >= 4) {
+            for(long t = state.size[3] & active; t != 0; t &= t - 1) {
+                buf[n++] = Move.complete(Long.numberOfTrailingZeros(t));
             }
         }
 
-        this.plantSeed = amtTrees[0];
-        this.growCosts[0] = 1 + amtTrees[1];
-        this.growCosts[1] = 3 + amtTrees[2];
-        this.growCosts[2] = 7 + amtTrees[3];
+        for(int size = 0; size < 3; size++) {
+            if(sun < growCost(size, state.count(player, size + 1))) continue;
+            for(long t = state.size[size] & active; t != 0; t &= t - 1) {
+                buf[n++] = Move.grow(Long.numberOfTrailingZeros(t));
+            }
+        }
+
+        if(sun >= state.count(player, 0)) {
+            long free = state.usable & ~state.occupied();
+            for(int size = 1; size <= 3; size++) {
+                for(long t = state.size[size] & active; t != 0; t &= t - 1) {
+                    int source = Long.numberOfTrailingZeros(t);
+                    for(long c = Hex.within[source][size] & free; c != 0; c &= c - 1) {
+                        buf[n++] = Move.seed(source, Long.numberOfTrailingZeros(c));
+                    }
+                }
+            }
+        }
+
+        return n;
+    }
+
+    //debug check: the generated moves must be exactly the referee's possible actions
+    static boolean matches(State state, int[] possibleActions, int possibleCount, int[] buf) {
+        int n = generate(state, State.ME, buf);
+        if(n != possibleCount) return false;
+        Arrays.sort(buf, 0, n);
+        for(int i = 0; i < possibleCount; i++) {
+            if(Arrays.binarySearch(buf, 0, n, possibleActions[i]) < 0) return false;
+        }
+        return true;
+    }
+}
+
+class Seeds {
+    //seeds are most of the moves late in the game and a seed's worth is almost all in its target:
+    //reduce() keeps one seed per target, from a source that has nothing better to do today, and
+    //optionally drops targets that another target beats on richness, shade and crowding at once
+    int[] key = new int[Hex.CELLS];
+
+    //copies moves[0, n) into out (which may be moves) with the seeds reduced, returns the new count
+    int reduce(State state, int player, int[] moves, int n, int[] out, boolean prune) {
+        //sources that could GROW or COMPLETE today, a seed would make them dormant
+        long active = state.owner[player] & ~state.dormant;
+        int sun = state.sun[player];
+        long busy = sun >= 4 ? state.size[3] & active : 0;
+        for(int size = 0; size < 3; size++) {
+            if(sun >= MoveGen.growCost(size, state.count(player, size + 1))) busy |= state.size[size] & active;
+        }
+        long idleReach = 0;
+        for(long t = active & ~busy & ~state.size[0]; t != 0; t &= t - 1) {
+            int source = Long.numberOfTrailingZeros(t);
+            idleReach |= Hex.within[source][state.sizeAt(source)];
+        }
+
+        long targets = 0;
+        int kept = 0;
+        for(int i = 0; i < n; i++) {
+            int move = moves[i];
+            if(Move.type(move) == Move.SEED) {
+                long bit = 1L << Move.target(move);
+                if((targets & bit) != 0) continue;
+                if((busy & 1L << Move.source(move)) != 0 && (idleReach & bit) != 0) continue;
+                targets |= bit;
+            }
+            out[kept++] = move;
+        }
+        if(!prune || Long.bitCount(targets) < 2) return kept;
+
+        //richness, sides in shade and own trees next to it, packed so that more is better in every field
+        long mine = state.owner[player];
+        for(long t = targets; t != 0; t &= t - 1) {
+            int c = Long.numberOfTrailingZeros(t);
+            key[c] = Hex.richness[c] << 6 | (6 - Hex.shade(state, c)) << 3 | (6 - Long.bitCount(Hex.within[c][1] & mine));
+        }
+        long dominated = 0;
+        for(long b = targets; b != 0; b &= b - 1) {
+            int kb = key[Long.numberOfTrailingZeros(b)];
+            for(long a = targets; a != 0; a &= a - 1) {
+                int ka = key[Long.numberOfTrailingZeros(a)];
+                if(ka != kb && (ka >> 6) >= (kb >> 6) && (ka >> 3 & 7) >= (kb >> 3 & 7) && (ka & 7) >= (kb & 7)) {
+                    dominated |= b & -b;
+                    break;
+                }
+            }
+        }
+        int k = 0;
+        for(int i = 0; i < kept; i++) {
+            if(Move.type(out[i]) != Move.SEED || (dominated & 1L << Move.target(out[i])) == 0) out[k++] = out[i];
+        }
+        return k;
+    }
+}
+
+class Eval {
+    static final double PRODUCTION = 0.7; // share of the raw future sun a tree is expected to keep after shade
+    static final double[] POTENTIAL = {0.1, 0.25, 0.5, 0.85}; // share of the nutrients a tree of each size is worth
+
+    //rough worth of a position for one player, in final points
+    static double value(State state, int player) {
+        if(Sim.gameOver(state)) return Sim.finalScore(state, player);
+
+        int daysLeft = Sim.LAST_DAY - state.day;
+        long mine = state.owner[player];
+        double v = state.score[player] + state.sun[player] / 3.0;
+
+        for(int size = 0; size < 4; size++) {
+            int amt = Long.bitCount(state.size[size] & mine);
+            if(amt == 0) continue;
+            v += amt * PRODUCTION * size * daysLeft / 3.0;
+            if(daysLeft >= 3 - size) v += amt * POTENTIAL[size] * state.nutrients;
+        }
+        return v;
+    }
+
+    static double evaluate(State state) {
+        if(Player.STATS) {
+            long start = System.nanoTime();
+            double v = LEARNED ? learned(state) : value(state, State.ME) - value(state, State.OPP);
+            Stats.evalNanos += System.nanoTime() - start;
+            Stats.evals++;
+            return v;
+        }
+        return LEARNED ? learned(state) : value(state, State.ME) - value(state, State.OPP);
+    }
+
+    //linear value fitted by tools/Train.java on self-play outcomes, expected final point difference for ME.
+    //PSQ holds an early and a late weight per cell and tree size, blended by day; the state keeps their sums
+    //up to date as trees change, so only the global terms below are computed here
+    static final boolean LEARNED = true;
+    static final int TERMS = 11; // score, sun, trees by size x days left, trees by size x nutrients, tomorrow's income
+    static final float[] PSQ = {-.431f, 2.333f, 2.185f, 5.269f, .123f, 2.581f, 1.543f, 1.159f, 1.801f, .846f, 1.742f, .597f, -.733f, 2.241f, -.866f, -.181f,
+            -.58f, .436f, -.813f, -1.733f, 2.064f, 5.867f, 1.985f, 3.31f, 1.543f, 1.186f, -.086f, -3.377f, -.742f, -1.805f, -1.827f, -2.42f,
+            -2.979f, -.357f, -2.324f, .924f, -2.084f, .013f, -2.349f, -1.252f, .395f, -1.021f, .343f, .534f, .047f, 1.829f, .402f, .598f,
+            1.685f, -.179f, 1.315f, -.642f, -1.237f, -.236f, -3.314f, -.535f, -3.753f, -2.247f, -.061f, -.24f, -1.106f, 2.19f, -2.444f, .366f,
+            -.011f, -1.37f, -.287f, 3.165f, -.4f, .004f, -1.12f, -4.767f, -2.295f, -.425f, -3.749f, 2.042f, 1.099f, -1.354f, -3.242f, -4.062f,
+            2f, -.478f, -.247f, .389f, .708f, -.456f, 2.167f, 7.593f, -1.004f, -3.395f, -2.476f, .267f, -.543f, -.738f, 1.373f, 2.593f,
+            2.924f, -1.841f, .831f, .31f, -1.735f, 1.269f, -.771f, -3.188f, .953f, 2.946f, 2.67f, .524f, 1.438f, .786f, 3.317f, 4.995f,
+            1.879f, .498f, -2.002f, -3.819f, -1.335f, .43f, 1.19f, -3.174f, .883f, -.053f, 2.343f, 2.104f, -1.372f, -1.709f, -.156f, -2.887f,
+            .384f, -2.843f, 2.703f, -1.984f, -1.641f, -2.356f, -.923f, -4.955f, -.138f, -3.253f, -2.377f, -3.572f, 1.616f, .765f, 2.496f, 5.258f,
+            2.576f, -.098f, 2.867f, .849f, -2.346f, -1.858f, -.229f, 1.943f, -2.081f, -2.102f, -.577f, 2.771f, -2.068f, -1.597f, .234f, 2.599f,
+            -1.313f, -2.488f, .628f, 2.533f, -1.233f, -1.075f, .977f, 3.921f, -1.579f, -2.538f, 1.604f, 2.909f, -2.119f, -1.705f, .846f, 4.425f,
+            -1.22f, -.77f, -.502f, 1.226f, -.456f, -1.257f, -.028f, 1.395f, -1.746f, -1.561f, -1.181f, .787f, -1.77f, -1.36f, -1.077f, 2.114f,
+            -1.677f, -1.341f, -.631f, 1.428f, -2.12f, -1.14f, -1.306f, 1.803f, -1.331f, -1.855f, .176f, 2.137f, -1.368f, -1.188f, -1.281f, 1.137f,
+            -2.25f, -1.514f, -.751f, 1.311f, -1.411f, -1.507f, -1.248f, .032f, -1.155f, -.599f, -.163f, 1.468f, -1.792f, -2.356f, -.54f, .425f,
+            -2.617f, -2.374f, -1.411f, -.472f, -2.425f, -2.404f, -2.75f, -1.948f, -2.273f, -1.802f, -2.985f, -2.441f, -2.058f, -.702f, -2.011f, -2.22f,
+            -1.703f, -1.265f, -2.028f, -3.572f, -1.701f, -.57f, -1.617f, -2.213f, -.685f, -1.316f, -.993f, -.785f, -1.935f, -1.374f, -1.615f, -.371f,
+            -1.636f, -.856f, -1.556f, -1.576f, -2.492f, -1.358f, -.85f, -.385f, -1.648f, -1.709f, -2.577f, -.887f, -1.918f, -1.227f, -2.363f, -1.886f,
+            -1.685f, -.932f, -1.734f, -.518f, -2.303f, -1.341f, -2.684f, -.913f, -.932f, -.918f, -1.855f, .003f, -2.617f, -1.063f, -2.316f, -1.284f,
+            -1.691f, -2.379f, -2.324f, -2.924f, -2.623f, -.879f, -2.738f, -.813f};
+    static final float[] WEIGHTS = {1.022f, .699f, -.104f, .164f, .907f, 1.352f, .136f, .111f, .029f, .305f, .741f};
+
+    static double learned(State state) {
+        if(Sim.gameOver(state)) return Sim.finalScore(state, State.ME) - Sim.finalScore(state, State.OPP);
+        double late = state.day / (double) Sim.LAST_DAY;
+        int daysLeft = Sim.LAST_DAY - state.day;
+        float[] w = WEIGHTS;
+        double v = (1 - late) * state.psqEarly + late * state.psqLate
+                + w[0] * (state.score[State.ME] - state.score[State.OPP]) + w[1] * (state.sun[State.ME] - state.sun[State.OPP]);
+        long mine = state.owner[State.ME], theirs = state.owner[State.OPP];
+        for(int size = 0; size < 4; size++) {
+            int diff = Long.bitCount(state.size[size] & mine) - Long.bitCount(state.size[size] & theirs);
+            v += diff * (w[2 + size] * daysLeft + w[6 + size] * state.nutrients);
+        }
+        return v + w[10] * income(state, (state.day + 1) % 6);
+    }
+
+    //my minus the opponent's sun income for a sun direction, without scratch arrays so searches can share it
+    static int income(State state, int dir) {
+        long[][] table = Hex.shadow[dir];
+        long shade = 0, spooky = 0;
+        for(int k = 3; k >= 1; k--) {
+            for(long t = state.size[k]; t != 0; t &= t - 1) {
+                shade |= table[Long.numberOfTrailingZeros(t)][k];
+            }
+            spooky |= state.size[k] & shade;
+        }
+        int income = 0;
+        for(int k = 1; k < 4; k++) {
+            long lit = state.size[k] & ~spooky;
+            income += k * (Long.bitCount(lit & state.owner[State.ME]) - Long.bitCount(lit & state.owner[State.OPP]));
+        }
+        return income;
+    }
+}
+
+//anytime decision making: start a search, poll step() while time is left, then take best()
+interface Strategy {
+    void start(State root, long deadline);
+
+    //does one bounded slice of work, false once there is nothing left to do
+    boolean step();
+
+    //best move found so far, valid at any point after start
+    int best();
+}
+
+class Greedy implements Strategy {
+    Game game;
+    int move;
+
+    Greedy(Game game) {
+        this.game = game;
+    }
+
+    public void start(State root, long deadline) {
+        move = game.getNextAction();
     }
+
+    public boolean step() {
+        return false;
+    }
+
+    public int best() {
+        return move;
+    }
+}
+
+class Clock {
+    //turn timing: started when the turn's first input arrives, records elapsed time and headroom per turn
+    static final int MAX_TURNS = 512;
+
+    long firstBudget, budget; // nanos
+    long start, stopped;
+    int turn;
+    int[] elapsedMicros = new int[MAX_TURNS];
+    int[] headroomMicros = new int[MAX_TURNS];
+
+    Clock(long firstBudgetMs, long budgetMs) {
+        firstBudget = firstBudgetMs * 1_000_000;
+        budget = budgetMs * 1_000_000;
+    }
+
+    //input that was already buffered before our last answer (replays, piped files) starts counting at that answer
+    void start(long inputArrived) {
+        start = Math.max(inputArrived, stopped);
+    }
+
+    long deadline() {
+        return start + (turn == 0 ? firstBudget : budget);
+    }
+
+    boolean expired() {
+        return System.nanoTime() >= deadline();
+    }
+
+    //call once the action is written
+    void stop() {
+        long now = System.nanoTime();
+        stopped = now;
+        int t = Math.min(turn, MAX_TURNS - 1);
+        elapsedMicros[t] = (int) ((now - start) / 1000);
+        headroomMicros[t] = (int) ((deadline() - now) / 1000);
+        turn++;
+    }
+
+    String lastTurn() {
+        int t = Math.min(turn - 1, MAX_TURNS - 1);
+        return "turn " + t + ": " + elapsedMicros[t] + " us, headroom " + headroomMicros[t] + " us";
+    }
+
+    String summary() {
+        int turns = Math.min(turn, MAX_TURNS);
+        long total = 0;
+        int worst = 0;
+        int tightest = Integer.MAX_VALUE;
+        for(int t = 1; t < turns; t++) {
+            total += elapsedMicros[t];
+            worst = Math.max(worst, elapsedMicros[t]);
+            tightest = Math.min(tightest, headroomMicros[t]);
+        }
+        return turns + " turns, first " + elapsedMicros[0] / 1000 + " ms, later avg "
+                + (turns > 1 ? total / (turns - 1) : 0) + " us max " + worst + " us, min headroom "
+                + (turns > 1 ? tightest : 0) + " us";
+    }
+}
+
+class Beam implements Strategy {
+    static final boolean PRUNE_SEEDS = true; // drop dominated seed targets, see Seeds
+
+    int width;
+    int days; // extra days to plan past the current one, 0 = only the rest of today
+    int rootDay, lastDay;
+    int todayMove, horizonMove;
+    double todayScore, horizonScore;
+    int expanded; // nodes of the current layer expanded so far
+    int nodes; // children generated this search, counted in Player.STATS builds only
+
+    Sim sim = new Sim();
+    int[] moves = new int[MoveGen.MAX_MOVES];
+    Seeds seeds = new Seeds();
+    State[] cur, next;
+    int[] curFirst, nextFirst;
+    double[] nextScore;
+    int[] heap; // min-heap of next slots by score, so the worst child is replaced first
+    int curSize, nextSize;
+    State scratch = new State();
+    State ended = new State();
+    TransTable tt;
+    OpponentModel model; // null plays against an opponent who has already waited
+
+    Beam(int width, int days) {
+        this(width, days, 18);
+    }
+
+    Beam(int width, int days, int log2Table) {
+        this.width = width;
+        this.days = days;
+        cur = new State[width];
+        next = new State[width];
+        for(int i = 0; i < width; i++) {
+            cur[i] = new State();
+            next[i] = new State();
+        }
+        curFirst = new int[width];
+        nextFirst = new int[width];
+        nextScore = new double[width];
+        heap = new int[width];
+        tt = new TransTable(log2Table);
+    }
+
+    public void start(State root, long deadline) {
+        tt.newSearch();
+        rootDay = root.day;
+        lastDay = Math.min(Sim.LAST_DAY, root.day + days);
+        //plans are compared at the end of the last planned day, today's best is the fallback if time runs out first
+        todayMove = Move.WAIT;
+        todayScore = endOfDay(root);
+        horizonMove = Move.WAIT;
+        horizonScore = lastDay == root.day ? todayScore : Double.NEGATIVE_INFINITY;
+
+        cur[0].copyFrom(root);
+        curFirst[0] = -1;
+        curSize = 1;
+        expanded = 0;
+        nextSize = 0;
+        nodes = 0;
+    }
+
+    //expands one node of the current layer, moving to the next layer when this one is done
+    public boolean step() {
+        if(expanded == curSize) {
+            State[] swap = cur;
+            cur = next;
+            next = swap;
+            int[] swapFirst = curFirst;
+            curFirst = nextFirst;
+            nextFirst = swapFirst;
+            curSize = nextSize;
+            nextSize = 0;
+            expanded = 0;
+            if(curSize == 0) return false;
+        }
+
+        int i = expanded++;
+        State parent = cur[i];
+        int oppMove = model == null ? Move.WAIT : model.predict(parent);
+        int n = seeds.reduce(parent, State.ME, moves, MoveGen.generate(parent, State.ME, moves), moves, PRUNE_SEEDS);
+        if(Player.STATS) nodes += n;
+        for(int m = 0; m < n; m++) {
+            int move = moves[m];
+            int first = curFirst[i] == -1 ? move : curFirst[i];
+            scratch.copyFrom(parent);
+            play(scratch, move, oppMove);
+            if(move == Move.WAIT && (parent.day == lastDay || Sim.gameOver(scratch))) {
+                //ending the day was already scored when the parent was reached
+                continue;
+            }
+
+            //the same position through another move order is already in the beam,
+            //a position scored on an earlier turn only reuses its value
+            int slot = tt.find(scratch.hash);
+            if(slot != -1 && tt.seenThisSearch(slot)) continue;
+
+            double score;
+            if(move == Move.WAIT) {
+                score = slot != -1 ? tt.values[slot] : Eval.evaluate(scratch);
+                tt.store(scratch.hash, score);
+                //a plan that also waits through the whole last day is compared at its end like the others
+                if(scratch.day == lastDay) {
+                    double horizon = endOfDay(scratch);
+                    if(horizon > horizonScore) {
+                        horizonScore = horizon;
+                        horizonMove = first;
+                    }
+                }
+            } else {
+                score = slot != -1 ? tt.values[slot] : endOfDay(scratch);
+                tt.store(scratch.hash, score);
+                if(scratch.day == lastDay && score > horizonScore) {
+                    horizonScore = score;
+                    horizonMove = first;
+                }
+                if(scratch.day == rootDay && score > todayScore) {
+                    todayScore = score;
+                    todayMove = first;
+                }
+            }
+            push(scratch, first, score);
+        }
+        return true;
+    }
+
+    //WAIT if nothing beats ending the day
+    public int best() {
+        return horizonScore > Double.NEGATIVE_INFINITY ? horizonMove : todayMove;
+    }
+
+    //value of the state if I wait now and the day ends
+    private double endOfDay(State state) {
+        ended.copyFrom(state);
+        sim.apply(ended, State.ME, Move.WAIT);
+        return Eval.evaluate(ended);
+    }
+
+    //my move against the predicted opponent move; once I wait the model plays out the rest of their day
+    private void play(State state, int move, int oppMove) {
+        if(model == null) {
+            sim.apply(state, State.ME, move);
+            return;
+        }
+        int day = state.day;
+        sim.turn(state, move, oppMove);
+        while(move == Move.WAIT && state.day == day) {
+            sim.turn(state, Move.WAIT, model.predict(state));
+        }
+    }
+
+    private void push(State state, int first, double score) {
+        int slot;
+        if(nextSize < width) {
+            slot = nextSize;
+            heap[nextSize] = slot;
+            nextSize++;
+            nextScore[slot] = score;
+            siftUp(nextSize - 1);
+        } else {
+            slot = heap[0];
+            if(score <= nextScore[slot]) return;
+            nextScore[slot] = score;
+            siftDown(0);
+        }
+        next[slot].copyFrom(state);
+        nextFirst[slot] = first;
+    }
+
+    private void siftUp(int i) {
+        while(i > 0) {
+            int parent = (i - 1) / 2;
+            if(nextScore[heap[parent]] <= nextScore[heap[i]]) break;
+            int t = heap[parent];
+            heap[parent] = heap[i];
+            heap[i] = t;
+            i = parent;
+        }
+    }
+
+    private void siftDown(int i) {
+        while(true) {
+            int smallest = i;
+            int l = 2 * i + 1;
+            int r = l + 1;
+            if(l < nextSize && nextScore[heap[l]] < nextScore[heap[smallest]]) smallest = l;
+            if(r < nextSize && nextScore[heap[r]] < nextScore[heap[smallest]]) smallest = r;
+            if(smallest == i) return;
+            int t = heap[smallest];
+            heap[smallest] = heap[i];
+            heap[i] = t;
+            i = smallest;
+        }
+    }
+}
+
+class Mcts implements Strategy {
+    static final double EXPLORATION = 0.7;
+    static final int MAX_EDGES = 24; // moves kept per player per node, seeds beyond this are dropped
+    static final int ROLLOUT_DAYS = 1; // rollouts stop this many days past the leaf and use Eval
+    static final boolean PRUNE_SEEDS = true; // drop dominated seed targets, see Seeds
+
+    //decoupled UCT: every node keeps separate move statistics for each player,
+    //children are keyed by the joint (my edge, opponent edge) pair and found through a sibling list
+    int maxNodes, maxEdges;
+    int nodeCount, edgeCount;
+    int[] visits, firstChild, sibling, joint;
+    int[][] edgeStart = new int[2][];
+    int[][] edges = new int[2][];
+    boolean[] expanded;
+    int[] edgeMove, edgeVisits;
+    double[] edgeReward;
+
+    int[] pathNode = new int[1024];
+    int[] pathEdge0 = new int[1024];
+    int[] pathEdge1 = new int[1024];
+    int[] moves = new int[MoveGen.MAX_MOVES];
+    Seeds seeds = new Seeds();
+    State root;
+    int rootNode;
+    State previous = new State(); // last search's root, this turn's position is looked up below it
+    boolean searched;
+    State state = new State();
+    Sim sim = new Sim();
+    long rng = 0x9E3779B97F4A7C15L;
+    int iterations;
+
+    Mcts(int maxNodes, int maxEdges) {
+        this.maxNodes = maxNodes;
+        this.maxEdges = maxEdges;
+        visits = new int[maxNodes];
+        firstChild = new int[maxNodes];
+        sibling = new int[maxNodes];
+        joint = new int[maxNodes];
+        edgeStart[0] = new int[maxNodes];
+        edgeStart[1] = new int[maxNodes];
+        edges[0] = new int[maxNodes];
+        edges[1] = new int[maxNodes];
+        expanded = new boolean[maxNodes];
+        edgeMove = new int[maxEdges];
+        edgeVisits = new int[maxEdges];
+        edgeReward = new double[maxEdges];
+    }
+
+    //keeps the subtree below last turn's root when this turn's position is in it and the pools are at most half full
+    public void start(State root, long deadline) {
+        int child = searched ? successor(root) : -1;
+        this.root = root;
+        iterations = 0;
+        if(child != -1 && nodeCount < maxNodes / 2 && edgeCount < maxEdges / 2) {
+            rootNode = child;
+        } else {
+            nodeCount = 0;
+            edgeCount = 0;
+            rootNode = newNode(-1);
+        }
+        previous.copyFrom(root);
+        searched = true;
+    }
+
+    //child of the last root under my most visited move whose position is root, -1 if there is none
+    private int successor(State root) {
+        if(!expanded[rootNode]) return -1;
+        int mine = bestEdge();
+        for(int child = firstChild[rootNode]; child != -1; child = sibling[child]) {
+            int e0 = edgeStart[0][rootNode] + (joint[child] >> 8);
+            if(e0 != mine) continue;
+            state.copyFrom(previous);
+            sim.turn(state, edgeMove[e0], edgeMove[edgeStart[1][rootNode] + (joint[child] & 255)]);
+            if(state.hash == root.hash) return child;
+        }
+        return -1;
+    }
+
+    //a batch of iterations, false once the pools are full
+    public boolean step() {
+        if(nodeCount + 32 >= maxNodes || edgeCount + 64 * MAX_EDGES >= maxEdges) return false;
+        for(int i = 0; i < 32; i++) {
+            iterate(root);
+            iterations++;
+        }
+        return true;
+    }
+
+    //my most visited root move
+    public int best() {
+        int e = bestEdge();
+        return e == -1 ? Move.WAIT : edgeMove[e];
+    }
+
+    private int bestEdge() {
+        int best = -1;
+        int bestVisits = -1;
+        for(int e = edgeStart[0][rootNode]; e < edgeStart[0][rootNode] + edges[0][rootNode]; e++) {
+            if(edgeVisits[e] > bestVisits) {
+                bestVisits = edgeVisits[e];
+                best = e;
+            }
+        }
+        return best;
+    }
+
+    private int newNode(int jointKey) {
+        int node = nodeCount++;
+        visits[node] = 0;
+        firstChild[node] = -1;
+        sibling[node] = -1;
+        joint[node] = jointKey;
+        expanded[node] = false;
+        edges[0][node] = 0;
+        edges[1][node] = 0;
+        return node;
+    }
+
+    private void iterate(State root) {
+        state.copyFrom(root);
+        int node = rootNode;
+        int depth = 0;
+
+        while(!Sim.gameOver(state)) {
+            if(!expanded[node]) expand(node);
+            int e0 = select(node, 0);
+            int e1 = select(node, 1);
+            pathNode[depth] = node;
+            pathEdge0[depth] = e0;
+            pathEdge1[depth] = e1;
+            depth++;
+            sim.turn(state, edgeMove[e0], edgeMove[e1]);
+
+            int key = (e0 - edgeStart[0][node]) << 8 | (e1 - edgeStart[1][node]);
+            int child = firstChild[node];
+            while(child != -1 && joint[child] != key) child = sibling[child];
+            if(child == -1) {
+                child = newNode(key);
+                sibling[child] = firstChild[node];
+                firstChild[node] = child;
+                break;
+            }
+            node = child;
+        }
+
+        double reward = rollout();
+        for(int d = 0; d < depth; d++) {
+            visits[pathNode[d]]++;
+            edgeVisits[pathEdge0[d]]++;
+            edgeReward[pathEdge0[d]] += reward;
+            edgeVisits[pathEdge1[d]]++;
+            edgeReward[pathEdge1[d]] += 1 - reward;
+        }
+    }
+
+    private void expand(int node) {
+        for(int p = 0; p < 2; p++) {
+            edgeStart[p][node] = edgeCount;
+            int n = seeds.reduce(state, p, moves, MoveGen.generate(state, p, moves), moves, PRUNE_SEEDS);
+            for(int i = 0; i < n && edgeCount - edgeStart[p][node] < MAX_EDGES; i++) {
+                edgeMove[edgeCount] = moves[i];
+                edgeVisits[edgeCount] = 0;
+                edgeReward[edgeCount] = 0;
+                edgeCount++;
+            }
+            edges[p][node] = edgeCount - edgeStart[p][node];
+        }
+        expanded[node] = true;
+    }
+
+    private int select(int node, int player) {
+        int start = edgeStart[player][node];
+        int end = start + edges[player][node];
+        double logN = Math.log(visits[node] + 1);
+        int best = start;
+        double bestValue = Double.NEGATIVE_INFINITY;
+        for(int e = start; e < end; e++) {
+            if(edgeVisits[e] == 0) return e;
+            double value = edgeReward[e] / edgeVisits[e] + EXPLORATION * Math.sqrt(logN / edgeVisits[e]);
+            if(value > bestValue) {
+                bestValue = value;
+                best = e;
+            }
+        }
+        return best;
+    }
+
+    //plays random non-seed moves for both players for a few days, my reward in [0, 1]
+    private double rollout() {
+        int stopDay = state.day + ROLLOUT_DAYS;
+        while(!Sim.gameOver(state) && state.day < stopDay) {
+            sim.turn(state, randomMove(State.ME), randomMove(State.OPP));
+        }
+        if(Sim.gameOver(state)) {
+            int diff = Sim.finalScore(state, State.ME) - Sim.finalScore(state, State.OPP);
+            return diff > 0 ? 1 : diff < 0 ? 0 : 0.5;
+        }
+        return 1 / (1 + Math.exp(-Eval.evaluate(state) / 8));
+    }
+
+    private int randomMove(int player) {
+        int n = MoveGen.generate(state, player, moves);
+        int kept = 0;
+        for(int i = 0; i < n; i++) {
+            if(Move.type(moves[i]) != Move.SEED || state.count(player, 0) == 0) moves[kept++] = moves[i];
+        }
+        rng ^= rng << 13;
+        rng ^= rng >>> 7;
+        rng ^= rng << 17;
+        return moves[(int) ((rng >>> 33) % kept)];
+    }
+}
+
+class Endgame implements Strategy {
+    //exhaustive search over my COMPLETE/GROW/WAIT sequences for the last days, opponent passive,
+    //maximizing the final point difference; positions are memoized by their Zobrist key
+    static final int DAYS = 3; // active from day LAST_DAY - DAYS + 1
+    static final int MAX_DEPTH = 128;
+    static final int CHECK_EVERY = 1024; // nodes between deadline checks
+
+    Sim sim = new Sim();
+    State[] stack = new State[MAX_DEPTH];
+    int[][] moves = new int[MAX_DEPTH][MoveGen.MAX_MOVES];
+    TransTable memo;
+    long deadline;
+    State root;
+    int bestMove;
+    boolean solved, aborted;
+    int nodes;
+
+    Endgame() {
+        this(20);
+    }
+
+    Endgame(int log2Memo) {
+        memo = new TransTable(log2Memo);
+        for(int i = 0; i < MAX_DEPTH; i++) stack[i] = new State();
+    }
+
+    static boolean active(State state) {
+        return state.day > Sim.LAST_DAY - DAYS;
+    }
+
+    public void start(State root, long deadline) {
+        this.root = root;
+        this.deadline = deadline;
+        memo.newSearch();
+        solved = false;
+        bestMove = Move.WAIT;
+    }
+
+    //one full solve per start(), a second step would only repeat it against the same deadline
+    public boolean step() {
+        if(solved) return false;
+        aborted = false;
+        nodes = 0;
+        stack[0].copyFrom(root);
+        solve(0);
+        solved = !aborted;
+        return false;
+    }
+
+    public int best() {
+        return bestMove;
+    }
+
+    private double solve(int depth) {
+        State state = stack[depth];
+        if(Sim.gameOver(state)) return Sim.finalScore(state, State.ME) - Sim.finalScore(state, State.OPP);
+
+        //values are exact, so positions solved on earlier turns are reused as well (not the root, it needs its move)
+        if(depth > 0) {
+            int slot = memo.find(state.hash);
+            if(slot != -1) return memo.values[slot];
+        }
+        if(++nodes % CHECK_EVERY == 0 && System.nanoTime() >= deadline) aborted = true;
+        if(aborted || depth + 1 >= MAX_DEPTH) {
+            aborted = true;
+            return 0;
+        }
+
+        int[] buf = moves[depth];
+        int n = MoveGen.generate(state, State.ME, buf);
+        double best = Double.NEGATIVE_INFINITY;
+        State child = stack[depth + 1];
+        for(int i = 0; i < n; i++) {
+            int move = buf[i];
+            if(!useful(state, move)) continue;
+            child.copyFrom(state);
+            sim.apply(child, State.ME, move);
+            double value = solve(depth + 1);
+            if(aborted) return 0;
+            if(value > best) {
+                best = value;
+                if(depth == 0) bestMove = move;
+            }
+        }
+
+        memo.store(state.hash, best);
+        return best;
+    }
+
+    //seeds never pay back this late, and a grow only counts if the tree can still reach size 3 and be completed
+    //(each grow and the complete take a day of their own); the extra sun a grow brings is worth less than its cost
+    private static boolean useful(State state, int move) {
+        switch (Move.type(move)) {
+            case Move.SEED:
+                return false;
+            case Move.GROW:
+                int daysLeft = Sim.LAST_DAY - state.day + 1;
+                return daysLeft >= 3 - state.sizeAt(Move.target(move)) + 1;
+            default:
+                return true;
+        }
+    }
+}
+
+class OpponentModel {
+    //predicts the opponent with our own greedy evaluator run from their side,
+    //and checks those predictions against what the opponent is seen doing between turns
+    static final int MIN_OBSERVED = 10;
+    static final double MIN_ACCURACY = 0.4;
+
+    Game game; // supplies the board
+    Game mirror = new Game();
+    State view = new State();
+    State last = new State();
+    boolean hasLast;
+    int predicted = -1; // prediction for the opponent's move in the last observed state
+    int lastSeen = -1; // inferred opponent move between the last two observations, -1 if unknown
+    int observed, correct;
+
+    OpponentModel(Game game) {
+        this.game = game;
+    }
+
+    //the opponent's most likely move in state, WAIT if they are done for the day
+    int predict(State state) {
+        if(state.waiting[State.OPP]) return Move.WAIT;
+        view.copyFlipped(state);
+        mirror.board = game.board;
+        mirror.day = view.day;
+        mirror.state.copyFrom(view);
+        mirror.possibleCount = MoveGen.generate(view, State.ME, mirror.possibleActions);
+        return mirror.getNextAction();
+    }
+
+    //call with every real state; scores the previous prediction when exactly one opponent move happened since
+    void observe(State now) {
+        lastSeen = -1;
+        if(hasLast && now.day == last.day && !last.waiting[State.OPP]) {
+            lastSeen = infer(last, now);
+            if(lastSeen != -1) {
+                observed++;
+                if(sameAction(lastSeen, predicted)) correct++;
+            }
+        }
+        last.copyFrom(now);
+        hasLast = true;
+        predicted = predict(now);
+    }
+
+    boolean reliable() {
+        return observed < MIN_OBSERVED || correct >= MIN_ACCURACY * observed;
+    }
+
+    //the opponent move that turns before into after within one day, source of a seed is not always known
+    static int infer(State before, State after) {
+        long was = before.owner[State.OPP];
+        long is = after.owner[State.OPP];
+        long planted = is & ~was & after.size[0];
+        if(planted != 0) {
+            int target = Long.numberOfTrailingZeros(planted);
+            long sources = after.dormant & ~before.dormant & is & ~planted;
+            return Move.seed(sources != 0 ? Long.numberOfTrailingZeros(sources) : 0, target);
+        }
+        long cut = was & ~is & before.size[3];
+        if(cut != 0) return Move.complete(Long.numberOfTrailingZeros(cut));
+        for(int size = 0; size < 3; size++) {
+            long grown = before.size[size] & after.size[size + 1] & was;
+            if(grown != 0) return Move.grow(Long.numberOfTrailingZeros(grown));
+        }
+        return after.waiting[State.OPP] ? Move.WAIT : -1;
+    }
+
+    private static boolean sameAction(int a, int b) {
+        return Move.type(a) == Move.type(b) && Move.target(a) == Move.target(b);
+    }
+}
+
+class Book {
+    //opening lines from tools/BookGen.java, played through day LAST_DAY while every move stays legal.
+    //LINES holds "key moves," per layout, in its canonical orientation (Symmetry) if SHARED, key is key() of the
+    //first turn's usable cells and trees in base 36, moves are '.' for WAIT, 'g' or 'c' and a cell for GROW or
+    //COMPLETE, 's' and two cells for SEED, cells written as '0' + index
+    static final int LAST_DAY = 5;
+    static final boolean SHARED = false; // one line per layout up to symmetry, 9x fewer lines but they play weaker
+    static final String LINES = "-ywyofz sDE.gC..gDgEsC1.gEg1.gEsDF.,zhnb0l .gC.sCT.gEgT.gEsTS.gTgS.," +
+            "upjrso .gFsCT.gC.gT.gFsTS.gTgSsF3.,-ljzyhq .gGsCT.gTsGE.gCgE..gCsG;gE.," +
+            "y20u8g .gC.gHsCE.gEsHJ.gE.gJgE.,rqhu3k sIJ.gI.gJsI:.gCg:sJ;.g;.gC.," +
+            "-ire5z2 sJK.gC.gJ..gKgJsC8.gKg8sJ5.,164a98 sKJ.gK.gC.sCSsK<.gS.gJgK.," +
+            "odnfzy .gMsCT.gTsMK.gTsMK.gCgKsTA.gA.,w5p6ze sN?.gC.g?sCS.gS.gNsC7.g?sN5.," +
+            "5qzvcf sOP.gC.gO.gPsCS.gPgSsO5.gOsC1.,csqcpm .gP.gCsPN.gNsP5.gNg5sPA.gAgC.," +
+            "75dgbd .gC.gQsCS.gS.gCsST.gSgTsQ?.,j4ndfb sRS.gR.gS.gS.gSsCT.gCgTsS0.," +
+            "59397n .gSsCT.gC.gT.gCsS6.gTg6.,-h6akcp sTS.gT.gC.gSsCE.gC.gSgEsC2.," +
+            "-5m6otm .gD.sDT.gEgTsD2.gTg2.gEs20.,-i7s354 .gD.sDT.gFgTsD1.gTg1sFG.g1gG.," +
+            "-3pm51g sDE.gD.gG.gEsG3.gEg3sD1.g3g1sG;.,-70vvte .gH.gDsHJ.gJsD1.gJg1sH<.g<gD.," +
+            "s40ma3 .gD.gIsDE.gEsD1.gEg1sDT.gTgEsIG.,-lw9gn7 .gD.sD2gJ.g2sJK.g2gKsDT.gTsJIg2.," +
+            "-pvgkb1 .gD.gKsD2.g2sK;.g2g;sKJ.g;gJsKI.,-eg69qa ..gDsLK.gKsDT.gKsD8gT.gTsK;.," +
+            "dgsbh8 .gD.gNsD2.g2sNL.g2gLsN>.g>.,2hrlok .gDsO?.g?sD1..g?g1.g?.," +
+            "mgeavb sP?.gP.gD.g?sD1.g?g1sP5.g5sDEg?.,-mcwa45 sQP.gD.gQ.gPsD1.gPg1sQ5.g5gDs10.," +
+            "yq1jku .gD.gRsDE.gEsRS.gS.gRgSsDT.,-enirdq .gD.gSsDE.gEsD2.gEg2sS6.g2g6sEG.," +
+            "geqjnv .gD.gTsDE.gEsD1.gEg1.g1sEG.,vfh7gs .gE.sFG.gFgGsE1.gGg1.gFsG;.," +
+            "arxwms .gE.gGsE2.g2sG;.g2g;sED.gDg2.,-2g2nkx .gH.gEsH2.g2sE1.g2g1sHJ.gJs23gH.," +
+            "vevn2m .gEsIJ.gI.gJ.gIsE2.g2.,-az63bu .gE.gJsE2.g2.gEsJI.g2gIsET.," +
+            "-lbtdlm .gE.gKsE:.g:sE1.g:g1sE2.g2g:sKM.,-4os6w2 .gEsLK.gKsEG.gKgG.gGsE7.gEsKJ.," +
+            "-a56hzc ..gM.gEsMK.gKsE2.gE.,kkrav6 sO?.gO.g?sOM.g?.s?AsO5gE.g5gAs?=.," +
+            "5xj35x sP?.gP.g?sE8.gEg8..gEg8s?5.,-54dcye .gE.gQsE2.g2sQ5.g2g5sQS.gSg2.," +
+            "exs0rb .gE.gRsE1.g1sRP.gPsEG.gGgE.,-mhk387 .gE.gSsE:..g:gSsEG.g:gG.," +
+            "-1f9ru5 sTS.gE.gT.gS.sE2gT.gSg2sEG.,6ttz9a .gFsG:.g:.g:sF2.gGg2s:0.g0.," +
+            "-uaczje sH;.gH.g;sH2.gFg2s;J.gJs20.gJg0s21.,xbb5m4 sIJ.gF.gJsFE.gIgE.gE.gJsI<.," +
+            "a5xc7l sJ;.gF..gF.gJg;sF3.g;g3sF8.,-ya1mau .gFsK<.g<.g<sFE.gE.gFgE.," +
+            "-l9foie .gFsLK.gL.gKsL<.g<.gLg<.,-qda8cu .gMsFG.gF.gG.gFsG:.gGg:sM5.,4easx2 ..gN.gFsNP.gPsFG.gF.," +
+            "-v2c07n sP@.gP.g@sPNsF9.gFg9..s@5sFHg9.,-zackcp .gQ.gFsQS.gSsQ?.g?.gFs?5.," +
+            "-6psw5s .gFsRS.gS.gS.gFsST.gRgTsFE.,-nfrvyy sSA.gF.gAsFE.gSgE.gA.gSsA1.," +
+            "r7iwqe sTS.gT.gF.gSsFE.gEsT1.gFgE.,x2n64c .gGsH;.g;sG2.g2s;J.g2.g2.," +
+            "-yqcdhb .gGsIJ.gJsGE.gJgE.gEsJK.gKsE2.,ut1lsg .gG.gJsGE.gEsG8.gEsG;g8.g8g;.," +
+            "-z3cujh .gG.gKsG2.g2sG;.g2g;sGE.gEgK.,-qwgo55 .gGsLK.gKsG;..gGgL.gKg;sGE.," +
+            "-gkeasj sML.gM.gG.gLsM5.gLsG2g5sMK.gKgLsGE.,-kyiyat .gNsG:.g:sN5.g:.g:.gGg5s:0.," +
+            "ioblb .sON.gO.gNsO5..gOgG.,8o9wmz sQ@.gQ.g@sQO.g@sQS.gGgS.g@sQ5.," +
+            "skmd3f .gGsRS.gSsG9.gSg9sG3.g3.gGsS1.,-1kwaz .gG.gSsGE.gEsS1.gEg1sST.gTgG.," +
+            "-elhfpr .gT.gGsT1.g1sG2.g1g2sGE.gEg1.,97yax3 .gHsIJ.gJ.sJK.gJgKsH3.gKg3.," +
+            "fpot4k .gHsJK.gJ.gKsH3..gKg3sH2.,lr3q6w .gH.gKsH:.g:sH3.g:g3sHJ.g3gJ.," +
+            "95af4s .gHsLK.gKsLM.gLgM..gLgKsHG.,fxwt6d .gM.gHsMK.gK.gHsKJ.gKgJsHE.," +
+            "mx56h8 .gH.gNsHJ.gJsN5.gJg5sH3.g3gN.,qhv55d .gH.gOsHJ.gJsH9.gOsH3.gJg3sO5.," +
+            "-jxkv9l ..gP.gHsPN.gNsH;.gNsP5g;.,scsgho sRA.gR.gAsRPsH:.gAg:.g:sA5.gA.," +
+            "-h5mrlo sSA.gA.gH.gSsA@.gAg@.g@sA5.,-wxuu84 .gT.gHsT1.g1sH;.g1g;sH9.g;g9s15.," +
+            "aouake sJK.gJ.gI.gK.gJsI;.gKg;sJ4.,728wck .gKsIJ.gJ.gI.gIsK=.gJg=sI2.," +
+            "-3scmur .gIsLK.gK.gK.gIsKJ.gLgJsK;sI2.,jhev08 .gI.gMsIK.gK.gIsKJ.gKgJsM4.," +
+            "tmovnx .gI.gNsI<.g<.gNsIG.g<gGsN5.,hjtje sOP.gI.gPsIK.gP.gOgKsIJ.gKgJsP6.," +
+            "-hqat3q .gI.gPsI:.g:sPN.g:gNsIJ.gNgJsP5.,-pzc0lo .sQP.gI.gP.gPsIK.gQgKsP6.," +
+            "-gm72vm sST.gI.gT.sI3.gIgS.gTsI0.,1ubccm sTS.gT.gSsT1.gIg1.g1sI3.g3s15.," +
+            "w1d77t .gKsJ;.g;sKM.g;gM.gMs;G.gJgGs;I.,-5y8ujj .gL.gJsL>.g>sJH.gJ.g>gH.," +
+            "-wyay2u .gJ.gMsJH.gHsJK.gHgKsJ3.gKg3.,-onmc1f .gJ.gNsJH.gHsJK.gHgKsN5.gKg5.," +
+            "pc44o8 .gJ.gOsJK.gKsO5.gO.gKg5sON.,7hplqu .gP.gJsPN.gNsP6.gNsJ3g6sP5.g5sJK.," +
+            "re2u7l sQ@.gQ.g@sQ5.g@sJK.gJgK.g@.,-z5o0vb .gRsJK.gKsRP.gP.gR..,-4b3z2z sTB.gT.gJ.gBsJL.gBgL.gBsJ:.," +
+            "-4wvylu .gLsK<.g<sLN.g<gN.s<0.gKg0.,1a1jv3 .gMsKJ.gJsMN.gJgN..gKsJI.," +
+            "d41b1b .gN.gKsNP.gPsK;.gPg;sKJ.gJgK.,-9ev1ue .gO.gKsON.gNsK<.g<.gO.," +
+            "-fpxk82 .gP.gKsPN.gNsP5.gK.gNg5sKM.,-kr77mn .gQ.sQSgK.gSsQ5.gSg5sKJ.gKgJ.," +
+            "-oz2z9i .gRsKJ.gJsR6.g6.gR.sR?gK.,-11m1ci .gS.sSQ.gKgQsS6.gQg6sSC.gCsKI.," +
+            "-hzvua .gMsLK.gK.gKsMN.gNsM5.gN.,-qv3144 .gNsLK.gKsNP.gKgP.gPsN5.g5sKI.," +
+            "-ovbje .gOsLK.gKsO@.gKg@.sK;.g@gK.,p35zz4 .gPsLK.gKsPN.gKgNsP5.g5sKJ.gK.," +
+            "-wlzdhh .gQsLK.gKsQ5.gKg5sQ6.g5.sK;g5.,u70ea5 .gRsLK.gKsRB.gKgB.sK3.gKg3.," +
+            "-3iayyc .gL.sLN.gSgNsL<.gNg<.gSsN5.,8qvmt9 .gL..sL<gT.g<.gTs<;.,gap9tu .gN.sNP.gMgPsN5.gPg5sMK.gM.," +
+            "-bam6wd sOP.gO.gPsMN.gMgN.gN.gNsM5.,9u9bx9 sP?.gM.gP.g?sMK.g?gKsPA.gAg?.," +
+            "-q9fqev sML.gM.gLsMK.gQ.gL.gKgLsQ6sM?.,u6nz1y .gM.gRsMK.gKsM5.gKg5sMN.gNgRsK;.," +
+            "rpgrfe sML.gM.gS.gLsS1.gLg1sMN.gNgL.,-l5f4du .gT.gMsTB.gBsT1..gBg1gM.," +
+            "-6bc1zr .gO.sNM.gNgMsOP.gMgP.gNsM4.,-x5tio5 sNM.gN.gP.gMsN5.g5.gNg5.," +
+            "gf6xk0 sN?.gQ.g?sQ5.g?sQS.gNgS.s?4gS.,1865te sNM.gN.gM.gMsN5.gRg5.gMs50sR6.," +
+            "-9yeevv .gS.gNsS6.g6sN=.g=s60sN5.g5gS.,j8kb4m .gT.gNsTD.gDsT1.gDg1sN5.g1g5sN?.," +
+            "krv6o3 .gPsO?.g?sP5.g5s?N.g5gN.gNs51.,-ovbjti .gQsO?.g?sQS.g?gS.gSs?6.gOg6s?M.," +
+            "-c75dx1 sON.gO.gR.gNsO5sRS.gO.gNgS.,m78rld sON.gO.gS.gNsS6.g6.gOs60.," +
+            "mz87ys sON.gO.gN.gNsOP.gN.gPsN0.,-cdbr6i .gQsP@.g@sQ5.g5.g5.g5.," +
+            "-rqkmtt .gP.gRsP>.g>sRB.g>gBsRT.gBgT.,xos6fp sP?.gP.gS.g?sPA.g?gAsP5.g5g?sS1.," +
+            "ysf8ij sP?.gP.gT.g?sTS.g?gSsP5.g?g5.,-sjjkdu .gRsQA.gA.gAsR6.g6sA1.gA.," +
+            "-swoxyy .gSsQP.gQ.gPsST.gPgT.gTsPN.,c88snn .gT.gQsT1.g1sQS.g1gSsQ?.g?g1sTD.," +
+            "-c05ek1 .gR.gSsR6.g6.gSs60.g6g0sS1.,rdj4yk sRA.gR.gAsRP.gA.gR.gTgPsAS.," +
+            "-5wke9w sSA.gS.gT.gAsS@.gAg@sTD.g@gDsA5.,";
+
+    int pos = -1, end; // this game's line is LINES[pos, end), empty if the layout has none or the line was left
+    int day;
+    int back; // maps the line's canonical orientation onto this board
+
+    //the layout a line belongs to: the usable mask and both owner masks, mapped by transform t and mixed together
+    static int key(State state, int t) {
+        long h = mix(mix(mix(0, Symmetry.map(state.usable, t)), Symmetry.map(state.owner[State.ME], t)),
+                Symmetry.map(state.owner[State.OPP], t));
+        return (int) (h ^ h >>> 32);
+    }
+
+    private static long mix(long h, long mask) {
+        h = (h ^ mask) * 0x9E3779B97F4A7C15L;
+        return h ^ h >>> 29;
+    }
+
+    //the line's next move, -1 once it is over
+    int next(State state) {
+        if(pos == -1 || state.day < day) {
+            //first turn of a game
+            int t = SHARED ? Symmetry.canonical(state) : 0;
+            back = Symmetry.inverse[t];
+            find(key(state, t));
+        }
+        day = state.day;
+        if(state.day > LAST_DAY || pos >= end) return -1;
+        char type = LINES.charAt(pos++);
+        if(type == '.') return Move.WAIT;
+        int cell = LINES.charAt(pos++) - '0';
+        if(type == 'g') return Symmetry.move(Move.grow(cell), back);
+        if(type == 'c') return Symmetry.move(Move.complete(cell), back);
+        return Symmetry.move(Move.seed(cell, LINES.charAt(pos++) - '0'), back);
+    }
+
+    void leave() {
+        end = pos;
+    }
+
+    //parses the keys in place rather than building strings, the lookup allocates nothing
+    private void find(int key) {
+        pos = end = 0;
+        for(int i = 0; i < LINES.length(); ) {
+            boolean negative = LINES.charAt(i) == '-';
+            if(negative) i++;
+            int k = 0;
+            for(char c; (c = LINES.charAt(i)) != ' '; i++) k = k * 36 + Character.digit(c, 36);
+            int next = LINES.indexOf(',', i);
+            if((negative ? -k : k) == key) {
+                pos = i + 1;
+                end = next;
+                return;
+            }
+            i = next + 1;
+        }
+    }
+
+    static String encode(int move) {
+        char source = (char) ('0' + Move.source(move));
+        char target = (char) ('0' + Move.target(move));
+        switch (Move.type(move)) {
+            case Move.GROW:
+                return "g" + target;
+            case Move.COMPLETE:
+                return "c" + target;
+            case Move.SEED:
+                return "s" + source + target;
+            default:
+                return ".";
+        }
+    }
+}
+
+class Params {
+    //the greedy evaluator's constants as one vector so tools/Tuner.java can tune them; the tuner
+    //writes a copy of this file with DEFAULTS replaced
+    static final int COMPLETE_ALL_DAY = 0; // from this day on the first COMPLETE is played
+    static final int GROW_BONUS_SEEDS = 1; // grow bonus once this many seeds are out
+    static final int GROW_BONUS = 2;
+    static final int COMPLETE_LAST_DAY = 3;
+    static final int COMPLETE_NUM = 4;
+    static final int COMPLETE_MIN = 5;
+    static final int COMPLETE_DAYS_DIV = 6;
+    static final int COMPLETE_TREES_DIV = 7;
+    static final int COMPLETE_OFFSET = 8;
+    static final int GROW_NUM = 9;
+    static final int GROW_RICHNESS = 10;
+    static final int GROW_TREES_DIV = 11;
+    static final int GROW_OFFSET = 12;
+    static final int SEED_FIRST_DAY = 13;
+    static final int SEED_NUM = 14;
+    static final int SEED_OFFSET = 15;
+    static final int SEED_RICHNESS_DIV = 16;
+
+    static final double[] DEFAULTS = {22, 2, 0.5, 23, 2.0, 0.2, 5.0, 2, 3.0, 1.0, 1.0, 3, 1.0, 2, 2.0, 3.0, 8.0};
 }
 
 class Game {
@@ -120,56 +1810,122 @@ class Game {
     int day;
     int nutrients;
     List<Cell> board;
-    List<Action> possibleActions;
+    int[] possibleActions;
+    int possibleCount;
     List<Tree> trees;
+    Tree[] treePool = new Tree[Hex.CELLS]; // trees is refilled from these every turn
+    ActionCosts costs;
+    RankedAction seedChoice = new RankedAction(Move.WAIT, -1); // the greedy's picks, refilled every call
+    RankedAction growChoice = new RankedAction(Move.WAIT, -1);
+    RankedAction completeChoice = new RankedAction(Move.WAIT, -1);
+    Seeds seeds = new Seeds();
+    int[] seedMoves = new int[MoveGen.MAX_MOVES];
     int mySun, opponentSun;
     int myScore, opponentScore;
     boolean opponentIsWaiting;
+    State state;
+    int mode = BEAM;
+    Greedy greedy;
+    Beam beam;
+    Mcts mcts;
+    Endgame endgame;
+    OpponentModel opponent;
+    Book book = new Book(); // null plays the opening by search too
+    Strategy used; // picked the last move
+    double[] w = Params.DEFAULTS;
+
+    static final int GREEDY = 0;
+    static final int BEAM = 1;
+    static final int MCTS = 2;
 
     public Game() {
         board = new ArrayList<>();
-        possibleActions = new ArrayList<>();
-        trees = new ArrayList<>();
+        possibleActions = new int[MoveGen.MAX_MOVES];
+        trees = new ArrayList<>(Hex.CELLS);
+        for(int i = 0; i < Hex.CELLS; i++) treePool[i] = new Tree(i, 0, false, false);
+        state = new State();
+        greedy = new Greedy(this);
     }
 
-    Action getNextAction() {
-        Hashtable<Integer, Tree> treeLocs = new Hashtable<>();
-        ActionCosts costs = new ActionCosts(trees);
+    //picks the move with the selected decision mode, searches stop at deadline (System.nanoTime)
+    int decide(long deadline) {
+        //the searchers and their tables are built on first use, a Game that only runs the greedy
+        //(OpponentModel's mirror) never needs them
+        if(mode == BEAM && beam == null) beam = new Beam(150, 1);
+        if(mode == MCTS && mcts == null) mcts = new Mcts(400_000, 4_000_000);
+        if(endgame == null) endgame = new Endgame();
+        if(opponent == null) opponent = new OpponentModel(this);
+        opponent.observe(state);
+        if(beam != null) beam.model = opponent.reliable() ? opponent : null;
+        int booked = book == null ? -1 : book.next(state);
+        if(booked != -1) {
+            used = null;
+            if(legal(booked)) return booked;
+            book.leave();
+        }
+        Strategy strategy = mode == GREEDY ? greedy : mode == BEAM ? beam : mcts;
+
+        //the last days are solved exactly when that fits in half the time left, otherwise the mode decides
+        if(Endgame.active(state)) {
+            long now = System.nanoTime();
+            endgame.start(state, now + (deadline - now) / 2);
+            endgame.step();
+            if(endgame.solved) strategy = endgame;
+        }
 
-        if(day >= 22) {
-            for(int i = 0; i < possibleActions.size(); i++) {
-                if(possibleActions.get(i).type.equals("COMPLETE")) {
-                    return possibleActions.get(i);
-                }
+        if(strategy != endgame) {
+            strategy.start(state, deadline);
+            while(System.nanoTime() < deadline && strategy.step()) {
             }
         }
+        int move = strategy.best();
+        used = strategy;
+        if(legal(move)) return move;
+        //planner and referee disagree, stay legal
+        return getNextAction();
+    }
 
-        //get all tree locations and finding # of seeds
-        for(int i = 0; i < trees.size(); i++) {
-            treeLocs.put(trees.get(i).cellIndex, trees.get(i));
+    boolean legal(int move) {
+        for(int i = 0; i < possibleCount; i++) {
+            if(possibleActions[i] == move) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    int getNextAction() {
+        if(costs == null) costs = new ActionCosts(state);
+        else costs.calcCosts(state);
+
+        if(day >= w[Params.COMPLETE_ALL_DAY]) {
+            for(int i = 0; i < possibleCount; i++) {
+                if(Move.type(possibleActions[i]) == Move.COMPLETE) {
+                    return possibleActions[i];
+                }
+            }
         }
 
         //find best seed location
-        RankedAction actionSeed = bestSeedLocation(treeLocs);
+        RankedAction actionSeed = bestSeedLocation();
 
         //find best grow action
-        RankedAction actionGrow = bestGrowLocation(treeLocs, costs);
-        if(costs.amtTrees[0] >= 2 && actionGrow.fitness != -1) {
-            actionGrow.fitness += 0.5;
+        RankedAction actionGrow = bestGrowLocation(costs);
+        if(costs.amtTrees[0] >= w[Params.GROW_BONUS_SEEDS] && actionGrow.fitness != -1) {
+            actionGrow.fitness += w[Params.GROW_BONUS];
         }
 
         //find best grow action
-        RankedAction actionComplete = bestCompleteLocation(treeLocs, costs);
+        RankedAction actionComplete = bestCompleteLocation(costs);
 
-        System.err.println(possibleActions);
         if(actionSeed.fitness == -1 && actionGrow.fitness == -1 && actionComplete.fitness == -1) {
-            return possibleActions.get(0);
+            return possibleActions[0];
         }
 
         return highestFitnessAction(actionSeed, actionGrow, actionComplete);     
     }
 
-    private Action highestFitnessAction(RankedAction actionSeed, RankedAction actionGrow, RankedAction actionComplete) {
+    private int highestFitnessAction(RankedAction actionSeed, RankedAction actionGrow, RankedAction actionComplete) {
         if(actionSeed.fitness >= actionGrow.fitness) {
             if(actionSeed.fitness >= actionComplete.fitness) {
                 return actionSeed.action;
@@ -185,13 +1941,13 @@ class Game {
         }
     }
 
-    private RankedAction bestCompleteLocation(Hashtable<Integer, Tree> treeLocs, ActionCosts costs) {
+    private RankedAction bestCompleteLocation(ActionCosts costs) {
         int bestCompleteIndex = -1;
         double bestCompleteFitness = 0;
 
-        for(int i = 0; i < possibleActions.size(); i++) {
-            if(possibleActions.get(i).type.equals("COMPLETE")) {
-                double curFitness = calcCompleteFitness(possibleActions.get(i), treeLocs, costs);
+        for(int i = 0; i < possibleCount; i++) {
+            if(Move.type(possibleActions[i]) == Move.COMPLETE) {
+                double curFitness = calcCompleteFitness(possibleActions[i], costs);
 
                 if(bestCompleteFitness < curFitness) {
                     bestCompleteFitness = curFitness;
@@ -201,32 +1957,33 @@ class Game {
         }
 
         if(bestCompleteIndex != -1) {
-            return new RankedAction(possibleActions.get(bestCompleteIndex), bestCompleteFitness);
+            return completeChoice.set(possibleActions[bestCompleteIndex], bestCompleteFitness);
         }
         //if there are no grow options:
-        return new RankedAction(null, -1);
+        return completeChoice.set(Move.WAIT, -1);
     }
 
-    private double calcCompleteFitness(Action action, Hashtable<Integer, Tree> treeLocs, ActionCosts costs) {
-        int curCell = action.targetCellIdx;
+    private double calcCompleteFitness(int action, ActionCosts costs) {
+        int curCell = Move.target(action);
 
-        int futureSunPoints = 23-day; //modified to make it easier to work with
+        double futureSunPoints = w[Params.COMPLETE_LAST_DAY]-day; //modified to make it easier to work with
         int richness = board.get(curCell).richness;
-        int shade = calcShadeOnIndex(curCell, treeLocs);
+        int shade = calcShadeOnIndex(curCell);
         int amt = costs.amtTrees[3];
 
-        double fitness = 2.0/Math.max(0.2, ((futureSunPoints/5.0)-(amt/2)+3.0) ); //does not work 
+        double fitness = w[Params.COMPLETE_NUM]/Math.max(w[Params.COMPLETE_MIN], ((futureSunPoints/w[Params.COMPLETE_DAYS_DIV])
+                -Math.floor(amt/w[Params.COMPLETE_TREES_DIV])+w[Params.COMPLETE_OFFSET]) ); //does not work 
 
         return fitness;
     }
 
-    private RankedAction bestGrowLocation(Hashtable<Integer, Tree> treeLocs, ActionCosts costs) { //can combine with bestSeedLocation
+    private RankedAction bestGrowLocation(ActionCosts costs) { //can combine with bestSeedLocation
         int bestGrowIndex = -1;
         double bestGrowFitness = 0;
 
-        for(int i = 0; i < possibleActions.size(); i++) {
-            if(possibleActions.get(i).type.equals("GROW")) {
-                double curFitness = calcGrowFitness(possibleActions.get(i), treeLocs, costs);
+        for(int i = 0; i < possibleCount; i++) {
+            if(Move.type(possibleActions[i]) == Move.GROW) {
+                double curFitness = calcGrowFitness(possibleActions[i], costs);
 
                 if(bestGrowFitness < curFitness) {
                     bestGrowFitness = curFitness;
@@ -236,37 +1993,38 @@ class Game {
         }
 
         if(bestGrowIndex != -1) {
-            return new RankedAction(possibleActions.get(bestGrowIndex), bestGrowFitness);
+            return growChoice.set(possibleActions[bestGrowIndex], bestGrowFitness);
         }
         //if there are no grow options:
-        return new RankedAction(null, -1);
+        return growChoice.set(Move.WAIT, -1);
     }
 
-    private double calcGrowFitness(Action action, Hashtable<Integer, Tree> treeLocs, ActionCosts costs) {
-        int curCell = action.targetCellIdx;
+    private double calcGrowFitness(int action, ActionCosts costs) {
+        int curCell = Move.target(action);
 
         int richness = board.get(curCell).richness; //= 0 to 3
-        int treeSize = treeLocs.get(curCell).size;
+        int treeSize = state.sizeAt(curCell);
         int cost = costs.growCosts[treeSize];
-        int shade = calcShadeOnIndex(curCell, treeLocs);
+        int shade = calcShadeOnIndex(curCell);
 
-        double fitness = 1.0/(shade-(1.0*richness)+(costs.amtTrees[treeSize+1]/3)+1.0); //should probs change this
+        double fitness = w[Params.GROW_NUM]/(shade-(w[Params.GROW_RICHNESS]*richness)
+                +Math.floor(costs.amtTrees[treeSize+1]/w[Params.GROW_TREES_DIV])+w[Params.GROW_OFFSET]); //should probs change this
 
         return fitness;
     }
 
 
-    private RankedAction bestSeedLocation(Hashtable<Integer, Tree> treeLocs) {
-        if(day < 2) return new RankedAction(null, -1);
+    private RankedAction bestSeedLocation() {
+        if(day < w[Params.SEED_FIRST_DAY]) return seedChoice.set(Move.WAIT, -1);
 
         int bestSeedIndex = -1;
         double bestSeedFitness = 0;
-        
-        System.err.println(possibleActions);
+        //the fitness only depends on the target's shade and richness, so no pruned target scores higher
+        int n = seeds.reduce(state, State.ME, possibleActions, possibleCount, seedMoves, true);
 
-        for(int i = 0; i < possibleActions.size(); i++) {
-            if(possibleActions.get(i).type.equals("SEED")) {
-                double curFitness = calcSeedFitness(possibleActions.get(i), treeLocs);
+        for(int i = 0; i < n; i++) {
+            if(Move.type(seedMoves[i]) == Move.SEED) {
+                double curFitness = calcSeedFitness(seedMoves[i]);
 
                 if(bestSeedFitness < curFitness) {
                     bestSeedFitness = curFitness;
@@ -276,55 +2034,295 @@ class Game {
         }
 
         if(bestSeedIndex != -1) {
-            return new RankedAction(possibleActions.get(bestSeedIndex), bestSeedFitness);
+            return seedChoice.set(seedMoves[bestSeedIndex], bestSeedFitness);
         }
         //if there are no seed options:
-        return new RankedAction(null, -1);
+        return seedChoice.set(Move.WAIT, -1);
     }
 
-    private double calcSeedFitness(Action action, Hashtable<Integer, Tree> treeLocs) {
-        int curCell = action.targetCellIdx;
-        int shade = calcShadeOnIndex(curCell, treeLocs);
+    private double calcSeedFitness(int action) {
+        int curCell = Move.target(action);
+        int shade = calcShadeOnIndex(curCell);
         int richness = board.get(curCell).richness;
 
         
-        return 2.0/(shade+3.0-(richness/8.0));
+        return w[Params.SEED_NUM]/(shade+w[Params.SEED_OFFSET]-(richness/w[Params.SEED_RICHNESS_DIV]));
     }
 
-    private int calcShadeOnIndex(int curCell, Hashtable<Integer, Tree> treeLocs) {
-        int potentialTreeShade = 0; //potential shade once tree is grown
-        int realTreeShade = 0; //current shade
+    private int calcShadeOnIndex(int curCell) {
+        return Hex.shade(state, curCell);
+    }
+}
 
-        Cell cell = board.get(curCell);
-        for(int i = 0; i < 6; i++) {
-            int neighbourCellIndex = cell.neighbours[i];
-            for(int j = 1; j <= 3; j++) {
-                if(neighbourCellIndex == -1) break;
+class Io {
+    //byte-level reader for the referee protocol, no regex and no String per token
+    InputStream in;
+    byte[] buf = new byte[1 << 16];
+    int len, pos;
+    boolean eof;
+    long fillNanos; // when the last chunk of input arrived, the start of the turn clock
 
-                if(treeLocs.containsKey(neighbourCellIndex)) {
-                    Tree tree = treeLocs.get(neighbourCellIndex);
+    Io(InputStream in) {
+        this.in = in;
+    }
 
-                    if(tree.size >= j) {
-                        realTreeShade++;
-                        break;
-                    } else {
-                        //potentialTreeShade++;
-                    }
-                }
-                neighbourCellIndex = board.get(neighbourCellIndex).neighbours[i];
+    private int read() {
+        if(pos == len) {
+            try {
+                len = in.read(buf, 0, buf.length);
+                fillNanos = System.nanoTime();
+            } catch (IOException e) {
+                len = -1;
             }
+            pos = 0;
+            if(len <= 0) {
+                eof = true;
+                len = 0;
+                return -1;
+            }
+        }
+        return buf[pos++];
+    }
+
+    //next integer, -1 once the input is exhausted
+    int nextInt() {
+        int c = read();
+        while(c != -1 && c != '-' && (c < '0' || c > '9')) c = read();
+        if(c == -1) return -1;
+
+        boolean negative = c == '-';
+        if(negative) c = read();
+        int value = 0;
+        while(c >= '0' && c <= '9') {
+            value = value * 10 + (c - '0');
+            c = read();
+        }
+        return negative ? -value : value;
+    }
+
+    //reads one "WAIT", "SEED s t", "GROW t" or "COMPLETE t" line into a packed move
+    int nextAction() {
+        int c = read();
+        while(c != -1 && (c < 'A' || c > 'Z')) c = read();
+        int first = c;
+        while(c >= 'A' && c <= 'Z') c = read();
+
+        switch (first) {
+            case 'S':
+                int source = nextInt();
+                return Move.seed(source, nextInt());
+            case 'G':
+                return Move.grow(nextInt());
+            case 'C':
+                return Move.complete(nextInt());
+            default:
+                return Move.WAIT;
+        }
+    }
+}
+
+class Warmup {
+    //runs the decision code on positions played out at random from the first turn's state until deadline, so the
+    //hot paths are compiled before the game needs them; uses its own Game so no table or model of the real one is
+    //touched, and collects its garbage before returning
+    Sim sim = new Sim();
+    State s = new State();
+    int[] moves = new int[MoveGen.MAX_MOVES];
+    long rng = 0x9E3779B97F4A7C15L;
+
+    int run(Game real, long deadline) {
+        Game game = new Game();
+        game.mode = real.mode;
+        game.board = real.board;
+        game.book = null;
+        //the same searchers with small tables, the warmup only needs their code compiled
+        if(game.mode == Game.BEAM) game.beam = new Beam(150, 1, 12);
+        if(game.mode == Game.MCTS) game.mcts = new Mcts(20_000, 200_000);
+        game.endgame = new Endgame(12);
+        int decisions = 0;
+        while(System.nanoTime() < deadline) {
+            s.copyFrom(real.state);
+            int stopDay = decisions * 7 % (Sim.LAST_DAY + 1); // spread over the whole game, the endgame solver included
+            while(s.day < stopDay) {
+                sim.turn(s, randomMove(State.ME), randomMove(State.OPP));
+            }
+            game.day = s.day;
+            game.state.copyFrom(s);
+            game.possibleCount = MoveGen.generate(s, State.ME, game.possibleActions);
+            game.decide(Math.min(deadline, System.nanoTime() + 5_000_000));
+            decisions++;
+        }
+        System.gc();
+        return decisions;
+    }
+
+    private int randomMove(int player) {
+        int n = MoveGen.generate(s, player, moves);
+        rng ^= rng << 13;
+        rng ^= rng >>> 7;
+        rng ^= rng << 17;
+        return moves[(int) ((rng >>> 33) % n)];
+    }
+}
+
+class Stats {
+    //per-turn counters for Player.STATS builds: one stderr line per turn, totals at game end
+    static long evals, evalNanos; // counted inside Eval.evaluate
+
+    int turns;
+    long parseTotal, decideTotal, decideMax, evalsTotal, evalTotal, nodesTotal, hitsTotal, probesTotal;
+    long evals0, evalNanos0, hits0, probes0, gc0 = -1, gc;
+
+    static long collections() {
+        long n = 0;
+        for(java.lang.management.GarbageCollectorMXBean gc : java.lang.management.ManagementFactory.getGarbageCollectorMXBeans()) {
+            n += Math.max(0, gc.getCollectionCount());
+        }
+        return n;
+    }
+
+    //before decide: snapshots the cumulative counters
+    void begin(Game game) {
+        evals0 = evals;
+        evalNanos0 = evalNanos;
+        hits0 = hits(game);
+        probes0 = probes(game);
+        if(gc0 == -1) gc0 = collections();
+    }
+
+    void end(Game game, long parseNanos, long decideNanos) {
+        Strategy used = game.used;
+        long nodes = used == null ? 0 : used == game.beam ? game.beam.nodes : used == game.endgame ? game.endgame.nodes
+                : used == game.mcts ? game.mcts.iterations : 0;
+        long hits = hits(game) - hits0;
+        long probes = probes(game) - probes0;
+        long collected = collections() - gc0;
+        System.err.println("day " + game.day + " parse " + parseNanos / 1000 + "us decide " + decideNanos / 1000
+                + "us eval " + (evals - evals0) + " in " + (evalNanos - evalNanos0) / 1000 + "us nodes " + nodes
+                + " (" + nodes * 1_000_000 / Math.max(1, decideNanos / 1000) + "/s) tt " + percent(hits, probes)
+                + " gc " + (collected - gc));
+        turns++;
+        parseTotal += parseNanos;
+        decideTotal += decideNanos;
+        decideMax = Math.max(decideMax, decideNanos);
+        evalsTotal += evals - evals0;
+        evalTotal += evalNanos - evalNanos0;
+        nodesTotal += nodes;
+        hitsTotal += hits;
+        probesTotal += probes;
+        gc = collected;
+    }
+
+    String summary() {
+        int n = Math.max(1, turns);
+        return turns + " turns: parse avg " + parseTotal / n / 1000 + "us, decide avg " + decideTotal / n / 1000
+                + "us max " + decideMax / 1000 + "us, " + evalsTotal + " evals in " + evalTotal / 1_000_000 + "ms, "
+                + nodesTotal * 1000 / Math.max(1, decideTotal / 1_000_000) + " nodes/s, tt " + percent(hitsTotal, probesTotal)
+                + ", " + gc + " gcs";
+    }
+
+    //searchers are built on first use, so any of them may still be missing
+    private static long hits(Game game) {
+        return (game.beam == null ? 0 : game.beam.tt.hits) + (game.endgame == null ? 0 : game.endgame.memo.hits);
+    }
+
+    private static long probes(Game game) {
+        return (game.beam == null ? 0 : game.beam.tt.probes) + (game.endgame == null ? 0 : game.endgame.memo.probes);
+    }
+
+    private static String percent(long part, long whole) {
+        return (whole == 0 ? 0 : 100 * part / whole) + "%";
+    }
+}
+
+class Recorder {
+    //append-only binary log of the referee input and our answers, games follow each other in the same file.
+    //game: 'G', cell count, per cell index, richness and the 6 neighbours + 1
+    //turn: 'T', day, nutrients, sun, score, opponent sun and score as shorts, opponent waiting, tree count,
+    //per tree cell and size | mine << 2 | dormant << 3, action count as short, one short per packed action,
+    //then our packed action as short and the turn's elapsed micros as int
+    FileOutputStream out;
+    byte[] buf = new byte[1 << 13];
+    int len;
+
+    Recorder(String path) {
+        try {
+            out = new FileOutputStream(path, true);
+        } catch (IOException e) {
+            System.err.println("not recording: " + e.getMessage());
+        }
+    }
+
+    void game(List<Cell> board) {
+        put('G');
+        put(board.size());
+        for(Cell cell : board) {
+            put(cell.index);
+            put(cell.richness);
+            for(int n : cell.neighbours) put(n + 1);
         }
+        flush();
+    }
 
-        return realTreeShade;
+    //one write per turn, called after the answer is sent
+    void turn(Game game, int action, int elapsedMicros) {
+        put('T');
+        put(game.day);
+        put(game.nutrients);
+        putShort(game.mySun);
+        putShort(game.myScore);
+        putShort(game.opponentSun);
+        putShort(game.opponentScore);
+        put(game.opponentIsWaiting ? 1 : 0);
+        put(game.trees.size());
+        for(Tree tree : game.trees) {
+            put(tree.cellIndex);
+            put(tree.size | (tree.isMine ? 4 : 0) | (tree.isDormant ? 8 : 0));
+        }
+        putShort(game.possibleCount);
+        for(int i = 0; i < game.possibleCount; i++) putShort(game.possibleActions[i]);
+        putShort(action);
+        putShort(elapsedMicros >>> 16);
+        putShort(elapsedMicros);
+        flush();
+    }
+
+    private void put(int b) {
+        buf[len++] = (byte) b;
+    }
+
+    private void putShort(int v) {
+        put(v >> 8);
+        put(v);
+    }
+
+    private void flush() {
+        if(out != null) {
+            try {
+                out.write(buf, 0, len);
+            } catch (IOException e) {
+                out = null;
+            }
+        }
+        len = 0;
     }
 }
 
 class Player {
 
+    static final boolean DEBUG = false; //cross-checks the bitboard state and simulator against the referee input
+    static final boolean STATS = false; //per-turn timings and search counters on stderr, compiled out when false
+    static final int MODE = Game.BEAM; //Game.GREEDY, Game.BEAM or Game.MCTS
+    static final long FIRST_TURN_BUDGET_MS = 900;
+    static final long TURN_BUDGET_MS = 45;
+    static final long WARMUP_MS = 400; //of the first turn, spent compiling the hot paths, 0 turns it off
+    static final String RECORD = null; //file to append a binary recording of every turn to, replayed by tools/Replay
+
     public static void main(String args[]) {
-        Scanner in = new Scanner(System.in);
+        Io in = new Io(System.in);
 
         Game game = new Game();
+        game.mode = MODE;
 
         int numberOfCells = in.nextInt();
         for (int i = 0; i < numberOfCells; i++) {
@@ -340,9 +2338,26 @@ class Player {
             Cell cell = new Cell(index, richness, neighs);
             game.board.add(cell);
         }
-
+        Hex.init(game.board);
+        Recorder recorder = RECORD == null ? null : new Recorder(RECORD);
+        if(recorder != null) recorder.game(game.board);
+
+        Sim sim = new Sim();
+        int[] debugMoves = new int[MoveGen.MAX_MOVES];
+        byte[] out = new byte[32];
+        int lastDay = -1;
+        int lastSun = 0;
+
+        Clock clock = new Clock(FIRST_TURN_BUDGET_MS, TURN_BUDGET_MS);
+        Stats stats = STATS ? new Stats() : null;
         while (true) {
             game.day = in.nextInt();
+            if(in.eof) {
+                if(DEBUG) System.err.println(clock.summary());
+                if(STATS) System.err.println(stats.summary());
+                return;
+            }
+            clock.start(in.fillNanos);
             game.nutrients = in.nextInt();
             game.mySun = in.nextInt();
             game.myScore = in.nextInt();
@@ -357,20 +2372,57 @@ class Player {
                 int size = in.nextInt();
                 boolean isMine = in.nextInt() != 0;
                 boolean isDormant = in.nextInt() != 0;
-                Tree tree = new Tree(cellIndex, size, isMine, isDormant);
+                Tree tree = game.treePool[i];
+                tree.cellIndex = cellIndex;
+                tree.size = size;
+                tree.isMine = isMine;
+                tree.isDormant = isDormant;
                 game.trees.add(tree);
             }
 
-            game.possibleActions.clear();
             int numberOfPossibleActions = in.nextInt();
-            in.nextLine();
             for (int i = 0; i < numberOfPossibleActions; i++) {
-                String possibleAction = in.nextLine();
-                game.possibleActions.add(Action.parse(possibleAction));
+                game.possibleActions[i] = in.nextAction();
+            }
+            game.possibleCount = numberOfPossibleActions;
+            long parseNanos = System.nanoTime() - clock.start;
+
+            game.state.load(game);
+            if(DEBUG) {
+                System.err.println("parse " + parseNanos / 1000 + " us, "
+                        + (100.0 * parseNanos / (clock.deadline() - clock.start)) + "% of the turn budget");
+                long hash = game.state.hash;
+                game.state.rehash();
+                if(!game.state.matches(game.trees) || hash != game.state.hash) {
+                    System.err.println("state mismatch on day " + game.day);
+                }
+                //our last move of a day is always WAIT, so the new day's sun is last sun + simulated income
+                if(lastDay != -1 && game.day == lastDay + 1 && lastSun + sim.income(game.state, State.ME) != game.mySun) {
+                    System.err.println("sun mismatch on day " + game.day + ": simulated "
+                            + (lastSun + sim.income(game.state, State.ME)) + ", referee " + game.mySun);
+                }
+                if(!MoveGen.matches(game.state, game.possibleActions, game.possibleCount, debugMoves)) {
+                    System.err.println("move generator mismatch on day " + game.day);
+                }
+                lastDay = game.day;
+                lastSun = game.mySun;
             }
 
-            Action action = game.getNextAction();
-            System.out.println(action);
+            if(clock.turn == 0 && WARMUP_MS > 0) {
+                int warmed = new Warmup().run(game, clock.start + WARMUP_MS * 1_000_000);
+                if(STATS) System.err.println("warmup " + warmed + " decisions in " + (System.nanoTime() - clock.start) / 1000 + "us");
+            }
+            if(STATS) stats.begin(game);
+            long decideStart = STATS ? System.nanoTime() : 0;
+            int action = game.decide(clock.deadline());
+            if(STATS) stats.end(game, parseNanos, System.nanoTime() - decideStart);
+            int len = Action.write(action, out, 0);
+            out[len++] = '\n';
+            System.out.write(out, 0, len);
+            System.out.flush();
+            clock.stop();
+            if(DEBUG) System.err.println(clock.lastTurn());
+            if(recorder != null) recorder.turn(game, action, clock.elapsedMicros[Math.min(clock.turn - 1, Clock.MAX_TURNS - 1)]);
         }
     }
 }
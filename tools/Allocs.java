@@ -0,0 +1,75 @@
+import java.lang.management.ManagementFactory;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//allocation check for the decision loop: feeds turns through Replay.load and Game.decide as Player does and
+//counts the bytes every turn allocates with the thread allocation counter. The turns come from seeded greedy
+//self-play, or from a recording (Player.RECORD). Each mode plays all games once to warm up, then once measured;
+//the first turn of a game is not measured (it builds the searchers and reads the book).
+//The decision code itself allocates nothing (run with -Xint and every turn reads 0), but with the JIT on a turn
+//now and then sees a few hundred bytes when compiled code is swapped under it. So a run fails if any turn
+//allocates more than SLACK_BYTES, or if more than SLACK_TURNS of the turns allocate at all; an allocation in
+//the code shows up on most turns.
+//run: java -cp out Allocs [games] [budgetMs] [recording]   exits 1 on failure
+class Allocs {
+    static final long SLACK_BYTES = 4096;
+    static final double SLACK_TURNS = 0.02;
+
+    static com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+
+    //my turns of seeded greedy self-play games as recordings
+    static List<Replay.Recording> selfPlay(int games) {
+        List<Replay.Recording> recordings = new ArrayList<>();
+        for(int g = 0; g < games; g++) {
+            State s = Arena.newGame(new Random(g));
+            Replay.Recording rec = new Replay.Recording();
+            rec.board = Arena.board(~s.usable & ((1L << Hex.CELLS) - 1));
+            Arena.playUntil(s, new GameBot(Game.GREEDY), new GameBot(Game.GREEDY), Sim.LAST_DAY + 1, 0, new int[2], (before, m0, m1) -> {
+                if(!before.waiting[State.ME]) rec.turns.add(Replay.turn(before, m0));
+            });
+            recordings.add(rec);
+        }
+        return recordings;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 10;
+        long budgetMs = args.length > 1 ? Long.parseLong(args[1]) : 5;
+        Arena.initGeometry();
+        List<Replay.Recording> games = args.length > 2 ? Replay.read(args[2]) : selfPlay(count);
+        long tid = Thread.currentThread().getId();
+
+        boolean ok = true;
+        for(int mode : new int[]{Game.GREEDY, Game.BEAM, Game.MCTS}) {
+            Game game = new Game();
+            game.mode = mode;
+            long worst = 0, total = 0;
+            int turns = 0, allocating = 0;
+            for(int pass = 0; pass < 2; pass++) {
+                for(Replay.Recording rec : games) {
+                    game.board = rec.board;
+                    Hex.init(rec.board);
+                    for(int i = 0; i < rec.turns.size(); i++) {
+                        Replay.Turn t = rec.turns.get(i);
+                        long before = threads.getThreadAllocatedBytes(tid);
+                        Replay.load(game, t);
+                        game.decide(System.nanoTime() + budgetMs * 1_000_000);
+                        long bytes = threads.getThreadAllocatedBytes(tid) - before;
+                        if(pass == 0 || i == 0) continue;
+                        worst = Math.max(worst, bytes);
+                        total += bytes;
+                        turns++;
+                        if(bytes > 0 && allocating++ < 5) System.out.printf("  day %2d allocated %d bytes%n", t.day, bytes);
+                    }
+                }
+            }
+            boolean passed = worst <= SLACK_BYTES && allocating <= SLACK_TURNS * turns;
+            System.out.printf("%-6s %d turns, %d allocated, avg %d max %d bytes/turn%s%n",
+                    mode == Game.GREEDY ? "greedy" : mode == Game.BEAM ? "beam" : "mcts", turns, allocating,
+                    total / Math.max(1, turns), worst, passed ? "" : "  FAILED");
+            ok &= passed;
+        }
+        if(!ok) System.exit(1);
+    }
+}
@@ -0,0 +1,95 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.Callable;
+import java.util.concurrent.ForkJoinPool;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+//offline position analysis with root-parallel MCTS: every worker searches the same position with its own
+//Mcts and Sim, then adds its root statistics into a shared lock-free table indexed by packed move.
+//run: java -cp out Analyze [positions] [msPerPosition] [threads]
+class Analyze {
+    static final int MOVE_SLOTS = 1 << 14; // packed moves use 14 bits
+    static final double REWARD_SCALE = 1 << 20; // rewards are summed as fixed point longs
+
+    final ForkJoinPool pool;
+    final int threads;
+    final ThreadLocal<Mcts> searchers = ThreadLocal.withInitial(() -> new Mcts(200_000, 2_000_000));
+    final AtomicLongArray visits = new AtomicLongArray(MOVE_SLOTS);
+    final AtomicLongArray rewards = new AtomicLongArray(MOVE_SLOTS);
+    final AtomicLongArray iterations = new AtomicLongArray(1);
+
+    Analyze(int threads) {
+        this.threads = threads;
+        pool = new ForkJoinPool(threads);
+    }
+
+    //best move for ME in root after budgetMs of search on every worker
+    int analyze(State root, long budgetMs) {
+        for(int i = 0; i < MOVE_SLOTS; i++) {
+            visits.set(i, 0);
+            rewards.set(i, 0);
+        }
+        List<Callable<Void>> tasks = new ArrayList<>();
+        for(int t = 0; t < threads; t++) {
+            long seed = 0x9E3779B97F4A7C15L * (t + 1);
+            tasks.add(() -> {
+                Mcts mcts = searchers.get();
+                mcts.rng = seed;
+                long deadline = System.nanoTime() + budgetMs * 1_000_000;
+                mcts.start(root, deadline);
+                while(System.nanoTime() < deadline && mcts.step()) {
+                }
+                for(int e = mcts.edgeStart[0][mcts.rootNode]; e < mcts.edgeStart[0][mcts.rootNode] + mcts.edges[0][mcts.rootNode]; e++) {
+                    visits.addAndGet(mcts.edgeMove[e], mcts.edgeVisits[e]);
+                    rewards.addAndGet(mcts.edgeMove[e], (long) (mcts.edgeReward[e] * REWARD_SCALE));
+                }
+                iterations.addAndGet(0, mcts.iterations);
+                return null;
+            });
+        }
+        pool.invokeAll(tasks);
+
+        int best = Move.WAIT;
+        for(int m = 0; m < MOVE_SLOTS; m++) {
+            if(visits.get(m) > visits.get(best)) best = m;
+        }
+        return best;
+    }
+
+    double winRate(int move) {
+        return visits.get(move) == 0 ? 0 : rewards.get(move) / REWARD_SCALE / visits.get(move);
+    }
+
+    //mid-game positions from seeded greedy self-play, stand-ins until recorded games are fed in
+    static List<State> positions(int count) {
+        List<State> positions = new ArrayList<>();
+        GameBot a = new GameBot(Game.GREEDY);
+        GameBot b = new GameBot(Game.GREEDY);
+        Random rnd = new Random(7);
+        for(int g = 0; g < count; g++) {
+            State s = Arena.newGame(new Random(g));
+            Arena.playUntil(s, a, b, 4 + rnd.nextInt(16), 0, new int[2], null);
+            positions.add(s);
+        }
+        return positions;
+    }
+
+    public static void main(String[] args) {
+        int count = args.length > 0 ? Integer.parseInt(args[0]) : 8;
+        long budgetMs = args.length > 1 ? Long.parseLong(args[1]) : 1000;
+        int threads = args.length > 2 ? Integer.parseInt(args[2]) : Runtime.getRuntime().availableProcessors();
+
+        Arena.initGeometry();
+        Analyze analyze = new Analyze(threads);
+        long start = System.nanoTime();
+        for(State s : positions(count)) {
+            int best = analyze.analyze(s, budgetMs);
+            System.out.printf("day %2d  sun %3d  best %-12s visits %8d  win %.3f%n", s.day, s.sun[State.ME],
+                    Action.toString(best), analyze.visits.get(best), analyze.winRate(best));
+        }
+        double seconds = (System.nanoTime() - start) / 1e9;
+        System.out.printf("%d threads: %.0f iterations/s%n", threads, analyze.iterations.get(0) / seconds);
+        analyze.pool.shutdown();
+    }
+}
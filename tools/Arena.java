@@ -0,0 +1,314 @@
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.function.Supplier;
+
+//local stand-in for the CodinGame referee: plays two bots against each other in-process.
+//build with the bot it drives: javac -d out Silver1100.java tools/*.java
+//run: java -cp out Arena <games> <botA> <botB> [budgetMs] [seed]   bots: greedy, beam, mcts, bronze
+interface ArenaBot {
+    //view always has the bot as State.ME, returns a packed move
+    int act(State view, List<Cell> board, long deadline);
+}
+
+class GameBot implements ArenaBot {
+    Game game = new Game();
+
+    GameBot(int mode) {
+        game.mode = mode;
+    }
+
+    public int act(State view, List<Cell> board, long deadline) {
+        see(view, board);
+        return game.decide(deadline);
+    }
+
+    void see(State view, List<Cell> board) {
+        game.board = board;
+        game.day = view.day;
+        game.state.copyFrom(view);
+        game.possibleCount = MoveGen.generate(view, State.ME, game.possibleActions);
+    }
+}
+
+//Game.getNextAction on its own: no book, no endgame solver, no opponent model, whatever the deadline
+class GreedyBot extends GameBot {
+    GreedyBot() {
+        super(Game.GREEDY);
+        game.book = null;
+    }
+
+    public int act(State view, List<Cell> board, long deadline) {
+        see(view, board);
+        return game.getNextAction();
+    }
+}
+
+//the Bronze1593 fitness formulas ported onto the bitboard state, constants lifted into w for the tuner
+class BronzeBot implements ArenaBot {
+    static final int SEED_RICHNESS = 0, SEED_CENTER_DAY = 1, SEED_CENTER = 2, SEED_OPEN = 3, SEED_SHADE = 4;
+    static final int SEED_SEEDS = 5, SEED_DAYS = 6, SEED_SCALE = 7, GROW_LAST_DAY = 8, GROW_CHEAP_DAY = 9;
+    static final int GROW_CHEAP_DIV = 10, GROW_CENTER = 11, GROW_RICHNESS_DIV = 12, GROW_SCALE = 13;
+    static final int COMPLETE_EARLY_DAY = 14, COMPLETE_EARLY = 15, COMPLETE_MID_DAY = 16, COMPLETE_MID = 17, COMPLETE_LATE = 18;
+    static final double[] DEFAULTS = {3, 20, 5, 10, 3, 3, 10, 22, 24, 20, 2, 25, 20, 25, 14, -1, 22, -0.2, 5};
+
+    double[] w;
+    int[] moves = new int[MoveGen.MAX_MOVES];
+
+    BronzeBot(double[] w) {
+        this.w = w;
+    }
+
+    public int act(State view, List<Cell> board, long deadline) {
+        int n = MoveGen.generate(view, State.ME, moves);
+        int[] amtTrees = new int[4];
+        for(int i = 0; i < 4; i++) amtTrees[i] = view.count(State.ME, i);
+
+        double highestFitness = 0;
+        int highestFitnessIndex = 0;
+        for(int i = 0; i < n; i++) {
+            double fitness = calcFitness(moves[i], view, board, amtTrees);
+            if(fitness > highestFitness) {
+                highestFitness = fitness;
+                highestFitnessIndex = i;
+            }
+        }
+        return moves[highestFitnessIndex];
+    }
+
+    //integer divisions of the original are kept with floor
+    double calcFitness(int move, State s, List<Cell> board, int[] amtTrees) {
+        int cell = Move.target(move);
+        int day = s.day;
+        int richness = board.get(cell).richness;
+        switch (Move.type(move)) {
+            case Move.SEED:
+                if(s.sizeAt(cell) != -1 || richness == 0) return Integer.MIN_VALUE;
+                double fitness = richness * w[SEED_RICHNESS];
+                if(cell == 0 && day < w[SEED_CENTER_DAY]) return w[SEED_CENTER];
+                int amtShade = 0;
+                for(int dir = 0; dir < 6; dir++) {
+                    if((s.occupied() & Hex.lineBit[cell][dir][0]) != 0) amtShade++;
+                }
+                fitness += w[SEED_OPEN] - (amtShade * w[SEED_SHADE]);
+                fitness -= w[SEED_SEEDS] * amtTrees[0];
+                fitness += Math.floor((w[GROW_LAST_DAY] - day) * w[SEED_DAYS] / w[GROW_LAST_DAY]);
+                return fitness / w[SEED_SCALE];
+            case Move.GROW:
+                int size = s.sizeAt(cell);
+                double grow = (size + 1) * (w[GROW_LAST_DAY] - day);
+                double cost = 0;
+                if(size == 0) cost = 1 + amtTrees[1] - Math.max(0, Math.floor((w[GROW_CHEAP_DAY] - day) / w[GROW_CHEAP_DIV]));
+                else if(size == 1) cost = 3 + amtTrees[2];
+                else if(size == 2) cost = 7 + amtTrees[3];
+                grow -= cost;
+                if(cell == 0) grow += w[GROW_CENTER];
+                grow += Math.floor(richness / w[GROW_RICHNESS_DIV]);
+                return grow / w[GROW_SCALE];
+            case Move.COMPLETE:
+                if(day < w[COMPLETE_EARLY_DAY]) return w[COMPLETE_EARLY];
+                if(day < w[COMPLETE_MID_DAY]) return w[COMPLETE_MID];
+                if(day > w[COMPLETE_MID_DAY]) return w[COMPLETE_LATE] + richness;
+                return 0;
+            default:
+                return -1;
+        }
+    }
+}
+
+class Arena {
+    static final int[][] DIRECTIONS = {{1, -1, 0}, {1, 0, -1}, {0, 1, -1}, {-1, 1, 0}, {-1, 0, 1}, {0, -1, 1}};
+    static final int MAX_TURNS = 2000; // guard against bots that never wait
+
+    static int[][] coords = new int[Hex.CELLS][];
+    static int[][] neighbours = new int[Hex.CELLS][6];
+    static int[] opposite = new int[Hex.CELLS];
+
+    //the official layout: cell 0 in the middle, then rings 1-3 with richness 3, 3, 2, 1
+    static void initGeometry() {
+        int n = 0;
+        coords[n++] = new int[]{0, 0, 0};
+        for(int ring = 1; ring <= 3; ring++) {
+            int[] c = {DIRECTIONS[4][0] * ring, DIRECTIONS[4][1] * ring, DIRECTIONS[4][2] * ring};
+            for(int dir = 0; dir < 6; dir++) {
+                for(int k = 0; k < ring; k++) {
+                    coords[n++] = c.clone();
+                    for(int a = 0; a < 3; a++) c[a] += DIRECTIONS[dir][a];
+                }
+            }
+        }
+        for(int i = 0; i < Hex.CELLS; i++) {
+            for(int dir = 0; dir < 6; dir++) {
+                neighbours[i][dir] = find(coords[i][0] + DIRECTIONS[dir][0], coords[i][1] + DIRECTIONS[dir][1], coords[i][2] + DIRECTIONS[dir][2]);
+            }
+            opposite[i] = find(-coords[i][0], -coords[i][1], -coords[i][2]);
+        }
+        Hex.init(board(0));
+    }
+
+    static int find(int x, int y, int z) {
+        for(int i = 0; i < Hex.CELLS; i++) {
+            if(coords[i] != null && coords[i][0] == x && coords[i][1] == y && coords[i][2] == z) return i;
+        }
+        return -1;
+    }
+
+    static int ringRichness(int cell) {
+        return cell < 7 ? 3 : cell < 19 ? 2 : 1;
+    }
+
+    static List<Cell> board(long holes) {
+        List<Cell> board = new ArrayList<>();
+        for(int i = 0; i < Hex.CELLS; i++) {
+            board.add(new Cell(i, (holes & (1L << i)) != 0 ? 0 : ringRichness(i), neighbours[i]));
+        }
+        return board;
+    }
+
+    //symmetric holes and two mirrored size 1 trees per player on the outer ring, like the official generator
+    static State newGame(Random rnd) {
+        State s = new State();
+        long holes = 0;
+        int pairs = rnd.nextInt(5);
+        for(int i = 0; i < pairs; i++) {
+            int cell = 1 + rnd.nextInt(Hex.CELLS - 1);
+            holes |= (1L << cell) | (1L << opposite[cell]);
+        }
+        s.usable = ((1L << Hex.CELLS) - 1) & ~holes;
+
+        int placed = 0;
+        while(placed < 2) {
+            int cell = 19 + rnd.nextInt(18);
+            long pair = (1L << cell) | (1L << opposite[cell]);
+            if((s.usable & pair) != pair || (s.occupied() & pair) != 0) continue;
+            s.addTree(cell, 1, State.ME, false);
+            s.addTree(opposite[cell], 1, State.OPP, false);
+            placed++;
+        }
+        s.nutrients = 20;
+        s.rehash();
+        return s;
+    }
+
+    //sees every turn of a played-out game: the position before the moves, then both moves
+    interface Turns {
+        void played(State before, int m0, int m1);
+    }
+
+    //plays a new game's first position s forward in place until stopDay begins or the game ends,
+    //illegal moves are replaced by WAIT and counted in illegal; turns may be null
+    static void playUntil(State s, ArenaBot bot0, ArenaBot bot1, int stopDay, long budgetNanos, int[] illegal, Turns turns) {
+        List<Cell> board = board(~s.usable & ((1L << Hex.CELLS) - 1));
+        Sim sim = new Sim();
+        State view = new State();
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        sim.gatherSun(s);
+
+        for(int turn = 0; turn < MAX_TURNS && !Sim.gameOver(s) && s.day < stopDay; turn++) {
+            int m0 = Move.WAIT;
+            int m1 = Move.WAIT;
+            if(!s.waiting[State.ME]) {
+                view.copyFrom(s);
+                m0 = legal(view, bot0.act(view, board, System.nanoTime() + budgetNanos), moves, illegal, 0);
+            }
+            if(!s.waiting[State.OPP]) {
+                view.copyFlipped(s);
+                m1 = legal(view, bot1.act(view, board, System.nanoTime() + budgetNanos), moves, illegal, 1);
+            }
+            if(turns != null) turns.played(s, m0, m1);
+            sim.turn(s, m0, m1);
+        }
+    }
+
+    //plays one game, returns final score difference for player 0 (ties broken by tree count)
+    static int play(State s, ArenaBot bot0, ArenaBot bot1, long budgetNanos, int[] illegal) {
+        playUntil(s, bot0, bot1, Sim.LAST_DAY + 1, budgetNanos, illegal, null);
+        int diff = Sim.finalScore(s, State.ME) - Sim.finalScore(s, State.OPP);
+        if(diff != 0) return diff;
+        return Long.bitCount(s.owner[State.ME]) > Long.bitCount(s.owner[State.OPP]) ? 1
+                : Long.bitCount(s.owner[State.ME]) < Long.bitCount(s.owner[State.OPP]) ? -1 : 0;
+    }
+
+    //an illegal move is replaced by WAIT, as the referee would deactivate the bot
+    static int legal(State view, int move, int[] moves, int[] illegal, int player) {
+        int n = MoveGen.generate(view, State.ME, moves);
+        for(int i = 0; i < n; i++) {
+            if(moves[i] == move) return move;
+        }
+        illegal[player]++;
+        return Move.WAIT;
+    }
+
+    static ArenaBot bot(String name) {
+        switch (name) {
+            case "greedy":
+                return new GameBot(Game.GREEDY);
+            case "beam":
+                return new GameBot(Game.BEAM);
+            case "mcts":
+                return new GameBot(Game.MCTS);
+            case "bronze":
+                return new BronzeBot(BronzeBot.DEFAULTS);
+            default:
+                throw new IllegalArgumentException("unknown bot " + name);
+        }
+    }
+
+    static AtomicIntegerArray illegalMoves = new AtomicIntegerArray(2); // botA, botB
+
+    //wins, losses, draws for botA over games played from both sides of each seeded board
+    static int[] match(int games, Supplier<ArenaBot> botA, Supplier<ArenaBot> botB, long budgetMs, long seed, int threads) throws Exception {
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        ThreadLocal<ArenaBot[]> bots = ThreadLocal.withInitial(() -> new ArenaBot[]{botA.get(), botB.get()});
+        List<Future<Integer>> results = new ArrayList<>();
+        for(int g = 0; g < games; g++) {
+            long gameSeed = seed + g / 2;
+            boolean swapped = (g & 1) == 1;
+            results.add(pool.submit(() -> {
+                ArenaBot[] b = bots.get();
+                State s = newGame(new Random(gameSeed));
+                int[] illegal = new int[2];
+                int diff = swapped ? -play(s, b[1], b[0], budgetMs * 1_000_000, illegal)
+                        : play(s, b[0], b[1], budgetMs * 1_000_000, illegal);
+                illegalMoves.addAndGet(swapped ? 1 : 0, illegal[0]);
+                illegalMoves.addAndGet(swapped ? 0 : 1, illegal[1]);
+                return Integer.signum(diff);
+            }));
+        }
+
+        int[] wld = new int[3];
+        for(Future<Integer> f : results) {
+            int r = f.get();
+            wld[r > 0 ? 0 : r < 0 ? 1 : 2]++;
+        }
+        pool.shutdown();
+        return wld;
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 200;
+        String botA = args.length > 1 ? args[1] : "greedy";
+        String botB = args.length > 2 ? args[2] : "bronze";
+        long budgetMs = args.length > 3 ? Long.parseLong(args[3]) : 5;
+        long seed = args.length > 4 ? Long.parseLong(args[4]) : 1;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        initGeometry();
+        long start = System.nanoTime();
+        int[] wld = match(games, () -> bot(botA), () -> bot(botB), budgetMs, seed, threads);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        int n = wld[0] + wld[1] + wld[2];
+        double p = (wld[0] + 0.5 * wld[2]) / n;
+        double ci = 1.96 * Math.sqrt(p * (1 - p) / n);
+        System.out.printf("%s vs %s: %d wins, %d losses, %d draws%n", botA, botB, wld[0], wld[1], wld[2]);
+        if(illegalMoves.get(0) + illegalMoves.get(1) > 0) {
+            System.out.printf("illegal moves replaced by WAIT: %s %d, %s %d%n", botA, illegalMoves.get(0), botB, illegalMoves.get(1));
+        }
+        System.out.printf("win rate %.1f%% +- %.1f%% (95%%), %.1f games/s on %d threads%n", 100 * p, 100 * ci, n / seconds, threads);
+    }
+}
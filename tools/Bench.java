@@ -0,0 +1,142 @@
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//microbenchmarks for the bot's hot paths: ns/op plus bytes allocated per op from the thread allocation counter.
+//run: java -cp out Bench [baseline.txt]   a missing baseline file is written from this run,
+//an existing one is compared against and the run exits 1 if anything got more than 20% slower
+class Bench {
+    static final long WARMUP_NANOS = 1_000_000_000L;
+    static final long MEASURE_NANOS = 2_000_000_000L;
+    static final double REGRESSION = 1.2;
+
+    interface Op {
+        long run(int i); // returns something the JIT cannot drop
+    }
+
+    static com.sun.management.ThreadMXBean threads = (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    static List<String> results = new ArrayList<>();
+    static long sink;
+
+    static void bench(String name, Op op) {
+        long end = System.nanoTime() + WARMUP_NANOS;
+        for(int i = 0; System.nanoTime() < end; i++) sink += op.run(i);
+
+        long tid = Thread.currentThread().getId();
+        long bytes = threads.getThreadAllocatedBytes(tid);
+        long start = System.nanoTime();
+        long ops = 0;
+        end = start + MEASURE_NANOS;
+        while(System.nanoTime() < end) {
+            for(int i = 0; i < 64; i++) sink += op.run((int) ops++);
+        }
+        double nsPerOp = (System.nanoTime() - start) / (double) ops;
+        double bytesPerOp = (threads.getThreadAllocatedBytes(tid) - bytes) / (double) ops;
+
+        String line = String.format("%-24s %12.1f ns/op %10.1f B/op", name, nsPerOp, bytesPerOp);
+        System.out.println(line);
+        results.add(name + " " + nsPerOp);
+    }
+
+    //mid-game positions recorded from seeded greedy self-play, one per game at the first turn of day 12
+    static State[] midGameStates(int count) {
+        State[] states = new State[count];
+        ArenaBot a = new GameBot(Game.GREEDY);
+        ArenaBot b = new GameBot(Game.GREEDY);
+        for(int g = 0; g < count; g++) {
+            State s = Arena.newGame(new Random(g));
+            Arena.playUntil(s, a, b, 12, 0, new int[2], null);
+            states[g] = s;
+        }
+        return states;
+    }
+
+    public static void main(String[] args) throws Exception {
+        Arena.initGeometry();
+        State[] states = midGameStates(16);
+        int mask = states.length - 1;
+        State copy = new State();
+        Sim sim = new Sim();
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        long[] shade = new long[4];
+
+        bench("state.copy", i -> {
+            copy.copyFrom(states[i & mask]);
+            return copy.size[1];
+        });
+        bench("shade.board", i -> {
+            Hex.shadows(states[i & mask], i % 6, shade);
+            return shade[1];
+        });
+        bench("movegen", i -> MoveGen.generate(states[i & mask], State.ME, moves));
+        bench("actioncosts", i -> new ActionCosts(states[i & mask]).growCosts[2]);
+        bench("sim.endday", i -> {
+            copy.copyFrom(states[i & mask]);
+            sim.turn(copy, Move.WAIT, Move.WAIT);
+            return copy.sun[0];
+        });
+
+        long[] rng = {1};
+        bench("sim.randomgame", i -> {
+            copy.copyFrom(states[i & mask]);
+            while(!Sim.gameOver(copy)) {
+                int m0 = moves[next(rng, MoveGen.generate(copy, State.ME, moves))];
+                int m1 = moves[next(rng, MoveGen.generate(copy, State.OPP, moves))];
+                sim.turn(copy, m0, m1);
+            }
+            return copy.score[0];
+        });
+
+        Game game = new Game();
+        game.board = Arena.board(0);
+        bench("decide.greedy", i -> decide(game, Game.GREEDY, states[i & mask], 0));
+        bench("decide.beam.5ms", i -> decide(game, Game.BEAM, states[i & mask], 5));
+        bench("decide.mcts.5ms", i -> decide(game, Game.MCTS, states[i & mask], 5));
+
+        if(args.length > 0) {
+            Path baseline = Paths.get(args[0]);
+            if(!Files.exists(baseline)) {
+                Files.write(baseline, results);
+            } else if(!compare(baseline)) {
+                System.exit(1);
+            }
+        }
+    }
+
+    static long decide(Game game, int mode, State s, long budgetMs) {
+        game.mode = mode;
+        game.day = s.day;
+        game.state.copyFrom(s);
+        game.possibleCount = MoveGen.generate(s, State.ME, game.possibleActions);
+        return game.decide(System.nanoTime() + budgetMs * 1_000_000);
+    }
+
+    static int next(long[] rng, int bound) {
+        long x = rng[0];
+        x ^= x << 13;
+        x ^= x >>> 7;
+        x ^= x << 17;
+        rng[0] = x;
+        return (int) ((x >>> 33) % bound);
+    }
+
+    //prints the change against a previous run's "name ns/op" lines, false if something regressed
+    static boolean compare(Path baseline) throws Exception {
+        boolean ok = true;
+        for(String line : Files.readAllLines(baseline)) {
+            String[] parts = line.trim().split("\\s+");
+            for(String result : results) {
+                String[] now = result.split(" ");
+                if(!now[0].equals(parts[0])) continue;
+                double ratio = Double.parseDouble(now[1]) / Double.parseDouble(parts[1]);
+                System.out.printf("%-24s %+.1f%%%s%n", now[0], 100 * (ratio - 1), ratio > REGRESSION ? "  REGRESSION" : "");
+                if(ratio > REGRESSION) ok = false;
+            }
+        }
+        return ok;
+    }
+}
@@ -0,0 +1,73 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+//generates Book.LINES: for every board without holes and every start of the two tree pairs (up to symmetry
+//if Book.SHARED), plays my opening with a wide beam and a long budget against the greedy, up to the end of Book.LAST_DAY.
+//run: java -cp out BookGen [msPerMove] [output]   from the directory holding Silver1100.java; the output is a
+//copy of it with Book.LINES replaced
+class BookGen {
+    static final int WIDTH = 3000;
+    static final int DAYS = 3;
+
+    static List<State> layouts() {
+        List<State> layouts = new ArrayList<>();
+        for(int a = 19; a < Hex.CELLS; a++) {
+            for(int b = a + 1; b < Hex.CELLS; b++) {
+                if(b == Arena.opposite[a]) continue;
+                State s = new State();
+                s.usable = (1L << Hex.CELLS) - 1;
+                s.addTree(a, 1, State.ME, false);
+                s.addTree(b, 1, State.ME, false);
+                s.addTree(Arena.opposite[a], 1, State.OPP, false);
+                s.addTree(Arena.opposite[b], 1, State.OPP, false);
+                s.nutrients = 20;
+                s.rehash();
+                //a layout that is a transform of another one plays that one's line
+                if(!Book.SHARED || Symmetry.canonical(s) == 0) layouts.add(s);
+            }
+        }
+        return layouts;
+    }
+
+    //"key moves," for the layout
+    static String line(State s, long budgetMs) {
+        GameBot me = new GameBot(Game.BEAM);
+        me.game.beam = new Beam(WIDTH, DAYS);
+        me.game.book = null;
+        GameBot opponent = new GameBot(Game.GREEDY);
+        opponent.game.book = null;
+        StringBuilder line = new StringBuilder(Integer.toString(Book.key(s, 0), 36)).append(' ');
+        Arena.playUntil(s, me, opponent, Book.LAST_DAY + 1, budgetMs * 1_000_000, new int[2], (before, m0, m1) -> {
+            if(!before.waiting[State.ME]) line.append(Book.encode(m0));
+        });
+        return line.append(',').toString();
+    }
+
+    public static void main(String[] args) throws Exception {
+        long budgetMs = args.length > 0 ? Long.parseLong(args[0]) : 300;
+        Path output = Paths.get(args.length > 1 ? args[1] : "Silver1100.booked.java");
+        Source.require("booked");
+
+        Arena.initGeometry();
+        List<State> layouts = layouts();
+        StringBuilder literal = new StringBuilder("\"");
+        int width = 0;
+        long start = System.nanoTime();
+        for(int i = 0; i < layouts.size(); i++) {
+            String line = line(layouts.get(i), budgetMs);
+            if(width > 0 && width + line.length() > 100) {
+                literal.append("\" +\n            \"");
+                width = 0;
+            }
+            literal.append(line);
+            width += line.length();
+            System.out.printf("%d/%d %s%n", i + 1, layouts.size(), line);
+        }
+        literal.append('"');
+        System.out.printf("%d lines, %d chars, %.0f s%n", layouts.size(), literal.length(), (System.nanoTime() - start) / 1e9);
+
+        Source.write(output, Source.replace(Source.read(), "static final String LINES = ", literal.toString()));
+    }
+}
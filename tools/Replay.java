@@ -0,0 +1,346 @@
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.PrintStream;
+import java.nio.file.Files;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+//replays recordings written by Recorder (Player.RECORD).
+//run: java -cp out Replay <recording> [greedy|beam|mcts] [budgetMs]   re-decides every turn in-process and reports
+//                                                                        decisions that differ and decide times
+//     java -cp out Replay <recording> text > input.txt                   referee input for any other bot build,
+//                                                                        e.g. java -cp old Player < input.txt > answers.txt
+//     java -cp out Replay <recording> diff answers.txt                   compares such answers with the recording
+//     java -cp out Replay <recording> check                              checks the engine against every recorded
+//                                                                        turn and Sim against every recorded step
+//                                                                        from one turn to the next, exits 1 on any
+//                                                                        mismatch
+class Replay {
+    static final int MAX_ORDERED = 9; // opponent moves after my WAIT tried in every order, more are not checked
+
+    static class Turn {
+        int day, nutrients, mySun, myScore, opponentSun, opponentScore;
+        boolean opponentIsWaiting;
+        List<Tree> trees = new ArrayList<>();
+        int[] actions;
+        int chosen;
+        int micros;
+    }
+
+    static class Recording {
+        List<Cell> board = new ArrayList<>();
+        List<Turn> turns = new ArrayList<>();
+    }
+
+    static List<Recording> read(String path) throws Exception {
+        List<Recording> games = new ArrayList<>();
+        try(DataInputStream in = new DataInputStream(new java.io.BufferedInputStream(Files.newInputStream(Paths.get(path))))) {
+            while(true) {
+                int tag;
+                try {
+                    tag = in.readUnsignedByte();
+                } catch (EOFException e) {
+                    return games;
+                }
+                if(tag == 'G') {
+                    Recording game = new Recording();
+                    int cells = in.readUnsignedByte();
+                    for(int i = 0; i < cells; i++) {
+                        int index = in.readUnsignedByte();
+                        int richness = in.readUnsignedByte();
+                        int[] neighs = new int[6];
+                        for(int d = 0; d < 6; d++) neighs[d] = in.readUnsignedByte() - 1;
+                        game.board.add(new Cell(index, richness, neighs));
+                    }
+                    games.add(game);
+                } else if(tag == 'T' && !games.isEmpty()) {
+                    Turn t = new Turn();
+                    t.day = in.readUnsignedByte();
+                    t.nutrients = in.readUnsignedByte();
+                    t.mySun = in.readUnsignedShort();
+                    t.myScore = in.readUnsignedShort();
+                    t.opponentSun = in.readUnsignedShort();
+                    t.opponentScore = in.readUnsignedShort();
+                    t.opponentIsWaiting = in.readUnsignedByte() != 0;
+                    int trees = in.readUnsignedByte();
+                    for(int i = 0; i < trees; i++) {
+                        int cell = in.readUnsignedByte();
+                        int bits = in.readUnsignedByte();
+                        t.trees.add(new Tree(cell, bits & 3, (bits & 4) != 0, (bits & 8) != 0));
+                    }
+                    t.actions = new int[in.readUnsignedShort()];
+                    for(int i = 0; i < t.actions.length; i++) t.actions[i] = in.readUnsignedShort();
+                    t.chosen = in.readUnsignedShort();
+                    t.micros = in.readInt();
+                    games.get(games.size() - 1).turns.add(t);
+                } else {
+                    throw new IllegalStateException("corrupt recording at tag " + tag);
+                }
+            }
+        }
+    }
+
+    //loads the turn into game the way Player's input loop does
+    static void load(Game game, Turn t) {
+        game.day = t.day;
+        game.nutrients = t.nutrients;
+        game.mySun = t.mySun;
+        game.myScore = t.myScore;
+        game.opponentSun = t.opponentSun;
+        game.opponentScore = t.opponentScore;
+        game.opponentIsWaiting = t.opponentIsWaiting;
+        game.trees.clear();
+        for(int i = 0; i < t.trees.size(); i++) game.trees.add(t.trees.get(i));
+        System.arraycopy(t.actions, 0, game.possibleActions, 0, t.actions.length);
+        game.possibleCount = t.actions.length;
+        game.state.load(game);
+    }
+
+    //the turn input the referee would send for s, the inverse of load
+    static Turn turn(State s, int chosen) {
+        Turn t = new Turn();
+        t.day = s.day;
+        t.nutrients = s.nutrients;
+        t.mySun = s.sun[State.ME];
+        t.myScore = s.score[State.ME];
+        t.opponentSun = s.sun[State.OPP];
+        t.opponentScore = s.score[State.OPP];
+        t.opponentIsWaiting = s.waiting[State.OPP];
+        for(long o = s.occupied(); o != 0; o &= o - 1) {
+            int cell = Long.numberOfTrailingZeros(o);
+            t.trees.add(new Tree(cell, s.sizeAt(cell), (s.owner[State.ME] & 1L << cell) != 0, (s.dormant & 1L << cell) != 0));
+        }
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        t.actions = java.util.Arrays.copyOf(moves, MoveGen.generate(s, State.ME, moves));
+        t.chosen = chosen;
+        return t;
+    }
+
+    static void decide(List<Recording> games, int mode, long budgetMs) {
+        int turns = 0, differ = 0;
+        long total = 0, worst = 0, recorded = 0;
+        for(int g = 0; g < games.size(); g++) {
+            Recording rec = games.get(g);
+            Game game = new Game();
+            game.mode = mode;
+            game.board = rec.board;
+            Hex.init(rec.board);
+            for(Turn t : rec.turns) {
+                long start = System.nanoTime();
+                load(game, t);
+                int action = game.decide(start + budgetMs * 1_000_000);
+                long nanos = System.nanoTime() - start;
+                total += nanos;
+                worst = Math.max(worst, nanos);
+                recorded += t.micros;
+                turns++;
+                if(action != t.chosen) {
+                    differ++;
+                    System.out.printf("game %d day %2d: recorded %-12s replayed %s%n", g, t.day,
+                            Action.toString(t.chosen), Action.toString(action));
+                }
+            }
+        }
+        System.out.printf("%d games, %d turns, %d decisions differ%n", games.size(), turns, differ);
+        System.out.printf("replay avg %d us max %d us, recorded avg %d us, %.0f turns/s%n", total / Math.max(1, turns) / 1000,
+                worst / 1000, recorded / Math.max(1, turns), turns / (total / 1e9));
+    }
+
+    //every turn's input loaded into the bitboard state, incrementally as Player does and from scratch, must hold
+    //exactly its trees with a consistent hash, and the move generator must produce exactly the referee's actions;
+    //then the recorded move and some opponent play must lead Sim from the previous turn to this one
+    static int check(List<Recording> games) {
+        int turns = 0, failed = 0;
+        int[] buf = new int[MoveGen.MAX_MOVES];
+        State previous = new State();
+        for(int g = 0; g < games.size(); g++) {
+            Recording rec = games.get(g);
+            Game game = new Game();
+            game.board = rec.board;
+            Hex.init(rec.board);
+            for(int i = 0; i < rec.turns.size(); i++) {
+                Turn t = rec.turns.get(i);
+                load(game, t);
+                State fresh = new State();
+                fresh.load(game);
+                fresh.rehash();
+                long hash = game.state.hash;
+                game.state.rehash();
+                String problem = !game.state.matches(game.trees) ? "state does not hold the input's trees"
+                        : hash != game.state.hash ? "incremental hash differs from rehash"
+                        : diff(fresh, game.state) != null ? "incremental load differs from a fresh one: " + diff(fresh, game.state)
+                        : !MoveGen.matches(game.state, game.possibleActions, game.possibleCount, buf) ? "generated moves differ from the referee's"
+                        : null;
+                if(problem == null && i > 0) {
+                    String step = transition(previous, rec.turns.get(i - 1).chosen, game.state);
+                    if(step != null) problem = "simulated step from day " + previous.day + " after " + Action.toString(rec.turns.get(i - 1).chosen) + ": " + step;
+                }
+                previous.copyFrom(game.state);
+                turns++;
+                if(problem != null) {
+                    failed++;
+                    System.out.printf("game %d day %2d: %s%n", g, t.day, problem);
+                }
+            }
+        }
+        System.out.printf("%d turns checked, %d failed%n", turns, failed);
+        return failed;
+    }
+
+    static Sim sim = new Sim();
+    static State[] stack = new State[MAX_ORDERED + 2];
+    static int[] opp = new int[MoveGen.MAX_MOVES];
+    static {
+        for(int i = 0; i < stack.length; i++) stack[i] = new State();
+    }
+
+    //null if my move and some opponent play turn before into after: one opponent move at the same time, or after
+    //my WAIT the rest of the opponent's day; otherwise how the likeliest one differs
+    static String transition(State before, int move, State after) {
+        if(Sim.cost(before, State.ME, move) > before.sun[State.ME]) return "the move costs more than my sun";
+        if(move != Move.WAIT) {
+            int n = MoveGen.generate(before, State.OPP, opp);
+            for(int i = 0; i < n; i++) {
+                if(!playable(before, opp[i])) continue;
+                stack[0].copyFrom(before);
+                sim.turn(stack[0], move, opp[i]);
+                if(diff(after, stack[0]) == null) return null;
+            }
+            int guess = OpponentModel.infer(before, after);
+            if(guess == -1 || Sim.cost(before, State.OPP, guess) > before.sun[State.OPP]) guess = Move.WAIT;
+            stack[0].copyFrom(before);
+            sim.turn(stack[0], move, guess);
+            return diff(after, stack[0]);
+        }
+
+        //each opponent tree acts at most once a day, so their moves are the trees that were completed, grew or
+        //were planted; only the order is unknown, and it matters for the costs and the nutrients
+        int k = 0;
+        long was = before.owner[State.OPP], is = after.owner[State.OPP];
+        for(long t = was | is; t != 0 && k <= MAX_ORDERED; t &= t - 1) {
+            int c = Long.numberOfTrailingZeros(t);
+            int from = (was & 1L << c) != 0 ? before.sizeAt(c) : -1;
+            int to = (is & 1L << c) != 0 ? after.sizeAt(c) : -1;
+            if(from == 3 && to != 3) opp[k++] = Move.complete(c);
+            else if(from >= 0 && to == from + 1) opp[k++] = Move.grow(c);
+            if(to == 0 && from != 0) opp[k++] = Move.seed(source(before, c), c);
+        }
+        if(k > MAX_ORDERED) return null;
+        stack[0].copyFrom(before);
+        if(order(0, k, 0, after)) return null;
+        State end = stack[0];
+        for(int i = 0; i < k; i++) {
+            if(playable(end, opp[i])) sim.turn(end, Move.WAIT, opp[i]);
+        }
+        sim.turn(end, Move.WAIT, Move.WAIT);
+        return diff(after, end);
+    }
+
+    //tries the remaining opponent moves in every affordable order, the day ends once they are all played
+    private static boolean order(int depth, int k, int used, State after) {
+        State s = stack[depth];
+        if(depth == k) {
+            State end = stack[k + 1];
+            end.copyFrom(s);
+            sim.turn(end, Move.WAIT, Move.WAIT);
+            return diff(after, end) == null;
+        }
+        for(int i = 0; i < k; i++) {
+            int move = opp[i];
+            if((used & 1 << i) != 0 || !playable(s, move)) continue;
+            State child = stack[depth + 1];
+            child.copyFrom(s);
+            sim.turn(child, Move.WAIT, move);
+            if(order(depth + 1, k, used | 1 << i, after)) return true;
+        }
+        return false;
+    }
+
+    private static boolean playable(State s, int move) {
+        if(Sim.cost(s, State.OPP, move) > s.sun[State.OPP]) return false;
+        return Move.type(move) != Move.SEED || (s.occupied() & 1L << Move.target(move)) == 0;
+    }
+
+    //some opponent tree that reaches the planted cell, the source only decides which tree sleeps for the day
+    private static int source(State before, int target) {
+        for(long t = before.owner[State.OPP] & ~before.size[0] & ~before.dormant; t != 0; t &= t - 1) {
+            int c = Long.numberOfTrailingZeros(t);
+            if((Hex.within[c][before.sizeAt(c)] & 1L << target) != 0) return c;
+        }
+        return target;
+    }
+
+    //first difference between two states, null if there is none
+    static String diff(State expected, State actual) {
+        long trees = expected.owner[State.ME] ^ actual.owner[State.ME] | expected.owner[State.OPP] ^ actual.owner[State.OPP]
+                | expected.dormant ^ actual.dormant;
+        for(int size = 0; size < 4; size++) trees |= expected.size[size] ^ actual.size[size];
+        if(trees != 0) return "trees differ on cell " + Long.numberOfTrailingZeros(trees);
+        if(expected.day != actual.day) return "day " + actual.day + ", expected " + expected.day;
+        if(expected.nutrients != actual.nutrients) return "nutrients " + actual.nutrients + ", expected " + expected.nutrients;
+        for(int p = 0; p < 2; p++) {
+            String who = p == State.ME ? "my " : "opponent ";
+            if(expected.sun[p] != actual.sun[p]) return who + "sun " + actual.sun[p] + ", expected " + expected.sun[p];
+            if(expected.score[p] != actual.score[p]) return who + "score " + actual.score[p] + ", expected " + expected.score[p];
+            if(expected.waiting[p] != actual.waiting[p]) return who + "waiting " + actual.waiting[p] + ", expected " + expected.waiting[p];
+        }
+        return null;
+    }
+
+    static void text(List<Recording> games, PrintStream out) {
+        for(Recording rec : games) {
+            out.println(rec.board.size());
+            for(Cell c : rec.board) {
+                StringBuilder line = new StringBuilder().append(c.index).append(' ').append(c.richness);
+                for(int n : c.neighbours) line.append(' ').append(n);
+                out.println(line);
+            }
+            for(Turn t : rec.turns) {
+                out.println(t.day);
+                out.println(t.nutrients);
+                out.println(t.mySun + " " + t.myScore);
+                out.println(t.opponentSun + " " + t.opponentScore + " " + (t.opponentIsWaiting ? 1 : 0));
+                out.println(t.trees.size());
+                for(Tree tree : t.trees) {
+                    out.println(tree.cellIndex + " " + tree.size + " " + (tree.isMine ? 1 : 0) + " " + (tree.isDormant ? 1 : 0));
+                }
+                out.println(t.actions.length);
+                for(int a : t.actions) out.println(Action.toString(a));
+            }
+        }
+        out.flush();
+    }
+
+    static void diff(List<Recording> games, String answers) throws Exception {
+        List<String> lines = Files.readAllLines(Paths.get(answers));
+        int i = 0, differ = 0;
+        for(int g = 0; g < games.size(); g++) {
+            for(Turn t : games.get(g).turns) {
+                String answer = i < lines.size() ? lines.get(i).trim() : "";
+                i++;
+                //bots may append a message after the command
+                if(!(answer + " ").startsWith(Action.toString(t.chosen) + " ")) {
+                    differ++;
+                    System.out.printf("game %d day %2d: recorded %-12s answered %s%n", g, t.day, Action.toString(t.chosen), answer);
+                }
+            }
+        }
+        System.out.printf("%d turns, %d answers differ%n", i, differ);
+    }
+
+    public static void main(String[] args) throws Exception {
+        List<Recording> games = read(args[0]);
+        String how = args.length > 1 ? args[1] : "greedy";
+        if(how.equals("text")) {
+            text(games, System.out);
+        } else if(how.equals("diff")) {
+            diff(games, args[2]);
+        } else if(how.equals("check")) {
+            if(check(games) > 0) System.exit(1);
+        } else {
+            int mode = how.equals("beam") ? Game.BEAM : how.equals("mcts") ? Game.MCTS : Game.GREEDY;
+            decide(games, mode, args.length > 2 ? Long.parseLong(args[2]) : 0);
+        }
+    }
+}
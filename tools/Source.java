@@ -0,0 +1,38 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+//the copy of the bot the offline tools write with tuned, trained or generated data in place, ready to submit
+class Source {
+    static final Path BOT = Paths.get("Silver1100.java");
+
+    //checked before any long run: the copy is made from the bot in the working directory
+    static void require(String copy) {
+        if(!Files.exists(BOT)) {
+            throw new IllegalStateException("run from the directory holding Silver1100.java, the " + copy + " copy is made from it");
+        }
+    }
+
+    static String read() throws Exception {
+        return new String(Files.readAllBytes(BOT));
+    }
+
+    //text with the initializer after declaration, up to its ';' outside string literals, replaced by literal
+    static String replace(String text, String declaration, String literal) {
+        int at = text.indexOf(declaration);
+        if(at == -1) throw new IllegalStateException("no " + declaration.trim() + " in " + BOT);
+        int start = at + declaration.length();
+        int end = start;
+        for(boolean quoted = false; quoted || text.charAt(end) != ';'; end++) {
+            char c = text.charAt(end);
+            if(c == '"') quoted = !quoted;
+            else if(c == '\\' && quoted) end++;
+        }
+        return text.substring(0, start) + literal + text.substring(end);
+    }
+
+    static void write(Path output, String text) throws Exception {
+        Files.write(output, text.getBytes());
+        System.out.println("wrote " + output);
+    }
+}
@@ -0,0 +1,193 @@
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+//fits Eval's learned value by ridge regression of the final point difference on every position of
+//arena self-play games (greedy with random moves mixed in, so the positions are not all alike).
+//run: java -cp out Train [games] [output]   from the directory holding Silver1100.java; the output is a copy
+//of it with Eval.PSQ and Eval.WEIGHTS replaced, ready to submit
+class Train {
+    static final int FEATURES = Eval.PSQ.length + Eval.TERMS;
+    static final double EPSILON = 0.15; // share of random moves
+    static final double RIDGE = 1.0;
+    static final int HOLDOUT = 10; // every 10th game is only used to score the fit
+
+    double[][] xtx = new double[FEATURES][FEATURES];
+    double[] xty = new double[FEATURES];
+    int[] index = new int[FEATURES];
+    double[] value = new double[FEATURES];
+    int samples;
+
+    //the same terms Eval.learned sums, as a sparse vector
+    int features(State s) {
+        int n = 0;
+        double late = s.day / (double) Sim.LAST_DAY;
+        for(long t = s.occupied(); t != 0; t &= t - 1) {
+            int cell = Long.numberOfTrailingZeros(t);
+            int sign = (s.owner[State.ME] & 1L << cell) != 0 ? 1 : -1;
+            int i = cell << 2 | s.sizeAt(cell);
+            index[n] = i;
+            value[n++] = sign * (1 - late);
+            index[n] = Hex.CELLS * 4 + i;
+            value[n++] = sign * late;
+        }
+        int g = Eval.PSQ.length;
+        int daysLeft = Sim.LAST_DAY - s.day;
+        index[n] = g;
+        value[n++] = s.score[State.ME] - s.score[State.OPP];
+        index[n] = g + 1;
+        value[n++] = s.sun[State.ME] - s.sun[State.OPP];
+        for(int size = 0; size < 4; size++) {
+            int diff = s.count(State.ME, size) - s.count(State.OPP, size);
+            index[n] = g + 2 + size;
+            value[n++] = diff * daysLeft;
+            index[n] = g + 6 + size;
+            value[n++] = diff * s.nutrients;
+        }
+        index[n] = g + 10;
+        value[n++] = Eval.income(s, (s.day + 1) % 6);
+        return n;
+    }
+
+    void add(State s, double target) {
+        int n = features(s);
+        for(int a = 0; a < n; a++) {
+            xty[index[a]] += value[a] * target;
+            for(int b = 0; b < n; b++) {
+                xtx[index[a]][index[b]] += value[a] * value[b];
+            }
+        }
+        samples++;
+    }
+
+    //solves (XtX + ridge I) w = Xty by Cholesky
+    double[] solve() {
+        int n = FEATURES;
+        double[][] l = new double[n][n];
+        for(int i = 0; i < n; i++) {
+            for(int j = 0; j <= i; j++) {
+                double sum = xtx[i][j] + (i == j ? RIDGE : 0);
+                for(int k = 0; k < j; k++) sum -= l[i][k] * l[j][k];
+                l[i][j] = i == j ? Math.sqrt(sum) : sum / l[j][j];
+            }
+        }
+        double[] y = new double[n];
+        for(int i = 0; i < n; i++) {
+            double sum = xty[i];
+            for(int k = 0; k < i; k++) sum -= l[i][k] * y[k];
+            y[i] = sum / l[i][i];
+        }
+        double[] w = new double[n];
+        for(int i = n - 1; i >= 0; i--) {
+            double sum = y[i];
+            for(int k = i + 1; k < n; k++) sum -= l[k][i] * w[k];
+            w[i] = sum / l[i][i];
+        }
+        return w;
+    }
+
+    //the greedy alone, without the opening book's lines
+    static GameBot greedy() {
+        GameBot bot = new GameBot(Game.GREEDY);
+        bot.game.book = null;
+        return bot;
+    }
+
+    //positions of one self-play game and the final point difference, ME's view
+    static double play(long seed, List<State> positions) {
+        Random rnd = new Random(seed);
+        ArenaBot a = explorer(greedy(), rnd);
+        ArenaBot b = explorer(greedy(), rnd);
+        State s = Arena.newGame(rnd);
+        Arena.playUntil(s, a, b, Sim.LAST_DAY + 1, 0, new int[2], (before, m0, m1) -> {
+            State copy = new State();
+            copy.copyFrom(before);
+            positions.add(copy);
+        });
+        return Sim.finalScore(s, State.ME) - Sim.finalScore(s, State.OPP);
+    }
+
+    //the bot with a random legal move instead of its own in EPSILON of the turns
+    static ArenaBot explorer(ArenaBot bot, Random rnd) {
+        int[] moves = new int[MoveGen.MAX_MOVES];
+        return (view, board, deadline) -> rnd.nextDouble() < EPSILON
+                ? moves[rnd.nextInt(MoveGen.generate(view, State.ME, moves))] : bot.act(view, board, deadline);
+    }
+
+    public static void main(String[] args) throws Exception {
+        int games = args.length > 0 ? Integer.parseInt(args[0]) : 3000;
+        Path output = Paths.get(args.length > 1 ? args[1] : "Silver1100.trained.java");
+        Source.require("trained");
+
+        Arena.initGeometry();
+        Train train = new Train();
+        List<State> heldOut = new ArrayList<>();
+        List<Double> heldOutTargets = new ArrayList<>();
+        long start = System.nanoTime();
+        for(int g = 0; g < games; g++) {
+            List<State> positions = new ArrayList<>();
+            double result = play(g, positions);
+            for(State s : positions) {
+                if(g % HOLDOUT == 0) {
+                    heldOut.add(s);
+                    heldOutTargets.add(result);
+                } else {
+                    train.add(s, result);
+                }
+            }
+        }
+        double[] w = train.solve();
+        System.out.printf("%d positions from %d games in %.1f s%n", train.samples, games, (System.nanoTime() - start) / 1e9);
+
+        for(int i = 0; i < FEATURES; i++) {
+            if(i < Eval.PSQ.length) Eval.PSQ[i] = (float) w[i];
+            else Eval.WEIGHTS[i - Eval.PSQ.length] = (float) w[i];
+        }
+        double learnedError = 0, handError = 0, worstDrift = 0;
+        int learnedSign = 0, handSign = 0;
+        for(int i = 0; i < heldOut.size(); i++) {
+            State s = heldOut.get(i);
+            s.rehash();
+            double target = heldOutTargets.get(i);
+            double learned = Eval.learned(s);
+            double hand = Eval.value(s, State.ME) - Eval.value(s, State.OPP);
+            int n = train.features(s);
+            double dot = 0;
+            for(int k = 0; k < n; k++) {
+                dot += train.value[k] * (train.index[k] < Eval.PSQ.length ? Eval.PSQ[train.index[k]] : Eval.WEIGHTS[train.index[k] - Eval.PSQ.length]);
+            }
+            worstDrift = Math.max(worstDrift, Math.abs(dot - learned));
+            learnedError += (learned - target) * (learned - target);
+            handError += (hand - target) * (hand - target);
+            if(Math.signum(learned) == Math.signum(target)) learnedSign++;
+            if(Math.signum(hand) == Math.signum(target)) handSign++;
+        }
+        int n = Math.max(1, heldOut.size());
+        System.out.printf("held out %d positions: rmse learned %.2f hand %.2f, winner right learned %.1f%% hand %.1f%%%n",
+                heldOut.size(), Math.sqrt(learnedError / n), Math.sqrt(handError / n), 100.0 * learnedSign / n, 100.0 * handSign / n);
+        if(worstDrift > 1e-3) throw new IllegalStateException("Eval.learned disagrees with the features by " + worstDrift);
+
+        String text = Source.read();
+        text = Source.replace(text, "static final float[] PSQ = ", array(Eval.PSQ));
+        text = Source.replace(text, "static final float[] WEIGHTS = ", array(Eval.WEIGHTS));
+        Source.write(output, text);
+    }
+
+    static String array(float[] values) {
+        StringBuilder literal = new StringBuilder("{");
+        for(int i = 0; i < values.length; i++) {
+            literal.append(i == 0 ? "" : i % 16 == 0 ? ",\n            " : ", ");
+            literal.append(literal(values[i]));
+        }
+        return literal.append("}").toString();
+    }
+
+    //shortest source form with three decimals: -.25f, 1.5f, 0f
+    static String literal(float v) {
+        String s = String.format("%.3f", v).replaceAll("0+$", "").replaceAll("\\.$", "");
+        if(s.equals("-0")) s = "0";
+        return s.replaceFirst("^(-?)0\\.", "$1.") + "f";
+    }
+}
@@ -0,0 +1,105 @@
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.Arrays;
+import java.util.Random;
+import java.util.function.Supplier;
+
+//SPSA tuning of the greedy fitness constants through arena self-play.
+//each generation plays theta+c*delta against theta-c*delta on fresh boards and steps theta toward the winner.
+//run: java -cp out Tuner <silver|bronze> [generations] [gamesPerGeneration] [checkpoint] [output]
+//progress is checkpointed after every generation and resumed from the checkpoint file if it exists;
+//for silver the output is Silver1100.java with Params.DEFAULTS replaced, ready to submit
+class Tuner {
+    static final double A = 2.0; // step size, relative to the perturbation
+    static final double C = 0.1; // perturbation, relative to the parameter
+    static final double MIN_C = 0.05;
+
+    String target;
+    double[] theta;
+    int generation;
+
+    Tuner(String target) {
+        this.target = target;
+        theta = (target.equals("bronze") ? BronzeBot.DEFAULTS : Params.DEFAULTS).clone();
+    }
+
+    Supplier<ArenaBot> bot(double[] w) {
+        if(target.equals("bronze")) return () -> new BronzeBot(w);
+        //the greedy alone, so every constant in w is exercised and none is masked by the book or the endgame solver
+        return () -> {
+            GreedyBot bot = new GreedyBot();
+            bot.game.w = w;
+            return bot;
+        };
+    }
+
+    void step(int games, long budgetMs, int threads) throws Exception {
+        Random rnd = new Random(generation * 7919L);
+        double ck = 1 / Math.pow(generation + 1, 0.101);
+        double ak = A / Math.pow(generation + 1, 0.602);
+        double[] c = new double[theta.length];
+        double[] plus = new double[theta.length];
+        double[] minus = new double[theta.length];
+        for(int i = 0; i < theta.length; i++) {
+            double delta = rnd.nextBoolean() ? 1 : -1;
+            c[i] = delta * ck * Math.max(MIN_C, C * Math.abs(theta[i]));
+            plus[i] = theta[i] + c[i];
+            minus[i] = theta[i] - c[i];
+        }
+
+        int[] wld = Arena.match(games, bot(plus), bot(minus), budgetMs, generation * 1_000_003L, threads);
+        double score = (wld[0] + 0.5 * wld[2]) / (wld[0] + wld[1] + wld[2]) - 0.5;
+        for(int i = 0; i < theta.length; i++) {
+            theta[i] += ak * score * c[i];
+        }
+        generation++;
+        System.out.printf("generation %d: plus scored %+.3f, theta %s%n", generation, score, Arrays.toString(theta));
+    }
+
+    void load(Path checkpoint) throws Exception {
+        if(!Files.exists(checkpoint)) return;
+        String[] lines = Files.readAllLines(checkpoint).toArray(new String[0]);
+        generation = Integer.parseInt(lines[0].trim());
+        theta = Arrays.stream(lines[1].split(",")).mapToDouble(Double::parseDouble).toArray();
+    }
+
+    void save(Path checkpoint) throws Exception {
+        StringBuilder values = new StringBuilder();
+        for(int i = 0; i < theta.length; i++) values.append(i == 0 ? "" : ",").append(theta[i]);
+        Path tmp = Paths.get(checkpoint + ".tmp");
+        Files.write(tmp, Arrays.asList(Integer.toString(generation), values.toString()));
+        Files.move(tmp, checkpoint, java.nio.file.StandardCopyOption.REPLACE_EXISTING);
+    }
+
+    //copy of the bot source with the tuned DEFAULTS line
+    void emit(Path output) throws Exception {
+        StringBuilder line = new StringBuilder("{");
+        for(int i = 0; i < theta.length; i++) line.append(i == 0 ? "" : ", ").append(theta[i]);
+        Source.write(output, Source.replace(Source.read(), "static final double[] DEFAULTS = ", line.append("}").toString()));
+    }
+
+    public static void main(String[] args) throws Exception {
+        String target = args.length > 0 ? args[0] : "silver";
+        int generations = args.length > 1 ? Integer.parseInt(args[1]) : 100;
+        int games = args.length > 2 ? Integer.parseInt(args[2]) : 1000;
+        Path checkpoint = Paths.get(args.length > 3 ? args[3] : "tuner-" + target + ".txt");
+        Path output = Paths.get(args.length > 4 ? args[4] : "Silver1100.tuned.java");
+        long budgetMs = 2;
+        int threads = Runtime.getRuntime().availableProcessors();
+
+        if(target.equals("silver")) Source.require("tuned");
+
+        Arena.initGeometry();
+        Tuner tuner = new Tuner(target);
+        tuner.load(checkpoint);
+        long start = System.nanoTime();
+        for(int g = 0; g < generations; g++) {
+            tuner.step(games, budgetMs, threads);
+            tuner.save(checkpoint);
+        }
+        System.out.printf("%.1f games/s%n", (double) generations * games / ((System.nanoTime() - start) / 1e9));
+
+        if(target.equals("silver")) tuner.emit(output);
+    }
+}